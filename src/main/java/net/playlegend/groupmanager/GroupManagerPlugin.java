@@ -4,26 +4,34 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.Entity;
 import lombok.Getter;
 import net.playlegend.groupmanager.command.GmGroupCommand;
+import net.playlegend.groupmanager.command.GmStatsCommand;
 import net.playlegend.groupmanager.command.GmUserCommand;
 import net.playlegend.groupmanager.command.RankInfoCommand;
 import net.playlegend.groupmanager.config.GroupManagerConfig;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.datastore.DataAccessExecutor;
+import net.playlegend.groupmanager.datastore.cache.GroupRegistry;
+import net.playlegend.groupmanager.datastore.cache.UserCache;
 import net.playlegend.groupmanager.listener.PlayerChatListener;
 import net.playlegend.groupmanager.listener.PlayerConnectionListener;
 import net.playlegend.groupmanager.listener.PlayerSignChangeListener;
+import net.playlegend.groupmanager.listener.PlayerWorldChangeListener;
 import net.playlegend.groupmanager.model.Group;
 import net.playlegend.groupmanager.model.Group_;
 import net.playlegend.groupmanager.permissible.PermissibleManager;
 import net.playlegend.groupmanager.tasks.TaskGroupValidityCheck;
+import net.playlegend.groupmanager.tasks.TaskPermissionPush;
 import net.playlegend.groupmanager.tasks.TaskRebuild;
 import net.playlegend.groupmanager.tasks.TaskSignUpdate;
+import net.playlegend.groupmanager.tasks.TaskTelemetryFlush;
 import net.playlegend.groupmanager.text.TextManager;
 import net.playlegend.groupmanager.util.FileUtil;
 import net.playlegend.groupmanager.visualization.scoreboard.ScoreboardManager;
 import net.playlegend.groupmanager.visualization.sign.SignManager;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -79,8 +87,16 @@ public class GroupManagerPlugin extends JavaPlugin {
 
   @Getter private BukkitTask groupValidCheckTask;
 
+  @Getter private BukkitTask permissionPushTask;
+
+  @Getter private BukkitTask telemetryFlushTask;
+
   @Getter private PermissibleManager permissibleManager;
 
+  @Getter private UserCache userCache;
+
+  @Getter private GroupRegistry groupRegistry;
+
   @Getter private GroupManagerConfig groupManagerConfig;
 
   @Getter
@@ -120,10 +136,31 @@ public class GroupManagerPlugin extends JavaPlugin {
     this.scoreboardManager = new ScoreboardManager();
     this.signManager = new SignManager();
     this.permissibleManager = new PermissibleManager();
+    this.userCache =
+        new UserCache(
+            this.groupManagerConfig.getUserCacheSize(),
+            this.groupManagerConfig.getUserCacheExpirySeconds());
+    this.groupRegistry = new GroupRegistry();
     this.textManager = new TextManager();
 
+    try {
+      this.permissibleManager.initializeInjection();
+    } catch (ReflectiveOperationException e) {
+      this.log(
+          Level.SEVERE,
+          "Failed to locate the permissible of CraftHumanEntity. Incompatible server version, "
+              + "group permissions will not be applied.",
+          e);
+    }
+
+    DataAccessExecutor.start(
+        this.groupManagerConfig.getDatabaseExecutorThreads(),
+        this.groupManagerConfig.getDatabaseExecutorQueueSize(),
+        this.groupManagerConfig.isDatabaseExecutorVirtualThreads());
+
     try {
       this.setupHibernate();
+      this.groupRegistry.load();
       this.checkDefaultGroup();
     } catch (IOException | DataAccessException e) {
       this.log(Level.SEVERE, "Failed to create Hibernate storage backend. Cannot continue.", e);
@@ -136,12 +173,23 @@ public class GroupManagerPlugin extends JavaPlugin {
     this.registerListeners();
 
     if (Bukkit.getOnlinePlayers().size() > 0) {
+      // the first failed injection disables injection, so the remaining players are skipped
+      for (Player player : Bukkit.getOnlinePlayers()) {
+        try {
+          this.permissibleManager.injectPermissible(player);
+        } catch (IllegalStateException e) {
+          this.log(Level.SEVERE, "Failed to inject permissible for player " + player.getName(), e);
+        }
+      }
+      Bukkit.getOnlinePlayers().forEach(player -> this.userCache.retain(player.getUniqueId()));
       this.scoreboardManager.updateScoreboards();
     }
 
     this.startSignUpdateTask();
     this.startGroupValidityCheckTask();
     this.startRebuildTask();
+    this.startPermissionPushTask();
+    this.startTelemetryFlushTask();
   }
 
   @Override
@@ -149,6 +197,11 @@ public class GroupManagerPlugin extends JavaPlugin {
     Bukkit.getScheduler().cancelTask(this.rebuildTask.getTaskId());
     Bukkit.getScheduler().cancelTask(this.signUpdateTask.getTaskId());
     Bukkit.getScheduler().cancelTask(this.groupValidCheckTask.getTaskId());
+    Bukkit.getScheduler().cancelTask(this.permissionPushTask.getTaskId());
+    Bukkit.getScheduler().cancelTask(this.telemetryFlushTask.getTaskId());
+    this.permissibleManager.saveHotNodes();
+    DataAccessExecutor.shutdown();
+    Dao.clearWriteListeners();
     this.endHibernate();
   }
 
@@ -157,6 +210,7 @@ public class GroupManagerPlugin extends JavaPlugin {
     Objects.requireNonNull(Bukkit.getPluginCommand("gmgroup")).setExecutor(new GmGroupCommand());
     Objects.requireNonNull(Bukkit.getPluginCommand("rankinfo")).setExecutor(new RankInfoCommand());
     Objects.requireNonNull(Bukkit.getPluginCommand("gmuser")).setExecutor(new GmUserCommand());
+    Objects.requireNonNull(Bukkit.getPluginCommand("gmstats")).setExecutor(new GmStatsCommand());
   }
 
   /** Registers event listeners. */
@@ -165,6 +219,7 @@ public class GroupManagerPlugin extends JavaPlugin {
     pluginManager.registerEvents(new PlayerConnectionListener(), this);
     pluginManager.registerEvents(new PlayerChatListener(), this);
     pluginManager.registerEvents(new PlayerSignChangeListener(), this);
+    pluginManager.registerEvents(new PlayerWorldChangeListener(), this);
   }
 
   /**
@@ -179,6 +234,13 @@ public class GroupManagerPlugin extends JavaPlugin {
     this.log(Level.INFO, "Setting up Hibernate backend...");
     Properties hibernateProperties =
         FileUtil.loadPropertiesFromFile(new File("plugins/GroupManager/hibernate.properties"));
+    // every data access uses its own short-lived session, so connections have to be pooled
+    hibernateProperties.putIfAbsent(
+        "hibernate.connection.provider_class",
+        "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
+    hibernateProperties.putIfAbsent(
+        "hibernate.hikari.maximumPoolSize",
+        String.valueOf(this.groupManagerConfig.getDatabasePoolSize()));
     Configuration configuration = new Configuration();
     configuration.setProperties(hibernateProperties);
     Reflections reflections =
@@ -211,9 +273,10 @@ public class GroupManagerPlugin extends JavaPlugin {
     if (defaultGroupResult.isEmpty()) {
       Group defaultGroup = new Group();
       defaultGroup.setName("default");
+      // the caches rebuilt by the put already have to know the default group
+      this.defaultGroup = defaultGroup;
       Dao.forType(Group.class).put(defaultGroup);
       this.log(Level.INFO, "Initialized default group.");
-      this.defaultGroup = defaultGroup;
     } else {
       this.defaultGroup = defaultGroupResult.get(0);
     }
@@ -296,4 +359,24 @@ public class GroupManagerPlugin extends JavaPlugin {
                 0,
                 this.groupManagerConfig.getGroupValidityCheckInterval());
   }
+
+  /**
+   * Starts the permission push task. Runs once every tick on the main thread and tells players
+   * whose permissions have changed about it, a limited amount of players per tick.
+   */
+  private void startPermissionPushTask() {
+    this.permissionPushTask =
+        Bukkit.getScheduler().runTaskTimer(this, new TaskPermissionPush(), 1, 1);
+  }
+
+  /**
+   * Starts the telemetry flush thread. Aggregates the permission check statistics into a report,
+   * which can then be viewed in-game. Runs once every 10 seconds.
+   */
+  private void startTelemetryFlushTask() {
+    int interval = this.groupManagerConfig.getTelemetryFlushInterval();
+    this.telemetryFlushTask =
+        Bukkit.getScheduler()
+            .runTaskTimerAsynchronously(this, new TaskTelemetryFlush(), interval, interval);
+  }
 }
@@ -6,7 +6,9 @@ import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.wrapper.GroupDao;
 import net.playlegend.groupmanager.datastore.wrapper.PermissionDao;
+import net.playlegend.groupmanager.datastore.wrapper.UserDao;
 import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.GroupWorldPermission;
 import net.playlegend.groupmanager.model.Permission;
 import net.playlegend.groupmanager.util.CommandUtil;
 import org.bukkit.Bukkit;
@@ -21,6 +23,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 public class GmGroupCommand implements CommandExecutor {
 
@@ -29,6 +32,8 @@ public class GmGroupCommand implements CommandExecutor {
     INFO("gm.group.info"),
     PERMADD("gm.group.permadd"),
     PERMDEL("gm.group.permdel"),
+    PARENTADD("gm.group.parentadd"),
+    PARENTDEL("gm.group.parentdel"),
     PREFIX("gm.group.prefix"),
     PRIORITY("gm.group.priority"),
     DELETE("gm.group.delete"),
@@ -109,6 +114,12 @@ public class GmGroupCommand implements CommandExecutor {
                 case PERMDEL:
                   this.executePermDel(sender, args);
                   break;
+                case PARENTADD:
+                  this.executeParentAdd(sender, args);
+                  break;
+                case PARENTDEL:
+                  this.executeParentDel(sender, args);
+                  break;
                 case PREFIX:
                   this.executePrefix(sender, args);
                   break;
@@ -194,6 +205,7 @@ public class GmGroupCommand implements CommandExecutor {
               .sendMessage(sender, "gm.group.error.prefixtoolong", null);
           return;
         }
+        // looked up ignoring case, so no two groups only differ in case
         Group group = GroupDao.getGroup(groupName);
         HashMap<String, String> replacements = new HashMap<>();
         if (group == null) {
@@ -227,7 +239,9 @@ public class GmGroupCommand implements CommandExecutor {
   }
 
   private void executePermAdd(CommandSender sender, String[] args) {
-    if (args.length == 3) {
+    if (args.length == 4) {
+      this.executeWorldPermAdd(sender, args);
+    } else if (args.length == 3) {
       String groupName = args[1];
       if (groupName.length() > 14) {
         GroupManagerPlugin.getInstance()
@@ -238,7 +252,7 @@ public class GmGroupCommand implements CommandExecutor {
       try {
         String permissionString = args[2];
         Permission permission = PermissionDao.getOrCreatePermission(permissionString);
-        Group group = GroupDao.getGroup(groupName);
+        Group group = GroupDao.loadGroup(groupName);
         HashMap<String, String> replacements = Maps.newHashMap();
         if (group != null) {
           replacements.put("%group%", group.getName());
@@ -251,8 +265,11 @@ public class GmGroupCommand implements CommandExecutor {
               return;
             }
           }
-          group.getPermissions().add(permission);
-          Dao.forType(Group.class).update(group);
+          Dao.forType(Group.class)
+              .modify(
+                  group.getId(),
+                  (entityManager, current) ->
+                      current.getPermissions().add(entityManager.merge(permission)));
           GroupManagerPlugin.getInstance()
               .getTextManager()
               .sendMessage(sender, "gm.group.permadd.success", replacements);
@@ -277,7 +294,9 @@ public class GmGroupCommand implements CommandExecutor {
   }
 
   private void executePermDel(CommandSender sender, String[] args) {
-    if (args.length == 3) {
+    if (args.length == 4) {
+      this.executeWorldPermDel(sender, args);
+    } else if (args.length == 3) {
       String groupName = args[1];
       if (groupName.length() > 14) {
         GroupManagerPlugin.getInstance()
@@ -288,15 +307,17 @@ public class GmGroupCommand implements CommandExecutor {
       try {
         String permissionString = args[2];
         Permission permission = PermissionDao.getOrCreatePermission(permissionString);
-        Group group = GroupDao.getGroup(groupName);
+        Group group = GroupDao.loadGroup(groupName);
         HashMap<String, String> replacements = new HashMap<>();
         if (group != null) {
           replacements.put("%group%", group.getName());
           replacements.put("%permission%", permission.getPermission());
           for (Permission groupPermission : group.getPermissions()) {
             if (groupPermission.getPermission().equalsIgnoreCase(permission.getPermission())) {
-              group.getPermissions().remove(groupPermission);
-              Dao.forType(Group.class).update(group);
+              Dao.forType(Group.class)
+                  .modify(
+                      group.getId(),
+                      current -> current.getPermissions().remove(groupPermission));
               GroupManagerPlugin.getInstance()
                   .getTextManager()
                   .sendMessage(sender, "gm.group.permdel.success", replacements);
@@ -326,6 +347,213 @@ public class GmGroupCommand implements CommandExecutor {
     }
   }
 
+  private void executeWorldPermAdd(CommandSender sender, String[] args) {
+    String groupName = args[1];
+    String permissionString = args[2];
+    String world = args[3];
+    HashMap<String, String> replacements = new HashMap<>();
+    replacements.put("%permission%", permissionString);
+    replacements.put("%world%", world);
+    try {
+      Group group = GroupDao.loadGroup(groupName);
+      if (group != null) {
+        replacements.put("%group%", group.getName());
+        for (GroupWorldPermission worldPermission : group.getWorldPermissions()) {
+          if (worldPermission.getWorld().equals(world)
+              && worldPermission.getPermission().equalsIgnoreCase(permissionString)) {
+            GroupManagerPlugin.getInstance()
+                .getTextManager()
+                .sendMessage(sender, "gm.group.error.worldpermissionalreadyset", replacements);
+            return;
+          }
+        }
+        Dao.forType(Group.class)
+            .modify(
+                group.getId(),
+                current -> {
+                  GroupWorldPermission worldPermission = new GroupWorldPermission();
+                  worldPermission.setGroup(current);
+                  worldPermission.setWorld(world);
+                  worldPermission.setPermission(permissionString);
+                  current.getWorldPermissions().add(worldPermission);
+                });
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.permadd.worldsuccess", replacements);
+      } else {
+        replacements.put("%group%", groupName);
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+      }
+    } catch (Exception e) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.error.internalerror", null);
+      GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to add world permission", e);
+    }
+  }
+
+  private void executeWorldPermDel(CommandSender sender, String[] args) {
+    String groupName = args[1];
+    String permissionString = args[2];
+    String world = args[3];
+    HashMap<String, String> replacements = new HashMap<>();
+    replacements.put("%permission%", permissionString);
+    replacements.put("%world%", world);
+    try {
+      Group group = GroupDao.loadGroup(groupName);
+      if (group != null) {
+        replacements.put("%group%", group.getName());
+        for (GroupWorldPermission worldPermission : group.getWorldPermissions()) {
+          if (worldPermission.getWorld().equals(world)
+              && worldPermission.getPermission().equalsIgnoreCase(permissionString)) {
+            Dao.forType(Group.class)
+                .modify(
+                    group.getId(),
+                    current ->
+                        current
+                            .getWorldPermissions()
+                            .removeIf(
+                                currentPermission ->
+                                    currentPermission.getId().equals(worldPermission.getId())));
+            GroupManagerPlugin.getInstance()
+                .getTextManager()
+                .sendMessage(sender, "gm.group.permdel.worldsuccess", replacements);
+            return;
+          }
+        }
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.worldpermissionnotset", replacements);
+      } else {
+        replacements.put("%group%", groupName);
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+      }
+    } catch (Exception e) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.error.internalerror", null);
+      GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to remove world permission", e);
+    }
+  }
+
+  private void executeParentAdd(CommandSender sender, String[] args) {
+    if (args.length == 3) {
+      String groupName = args[1];
+      String parentName = args[2];
+      if (groupName.length() > 14 || parentName.length() > 14) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.nametoolong", null);
+        return;
+      }
+      try {
+        Group group = GroupDao.loadGroup(groupName);
+        Group parent = GroupDao.getGroup(parentName);
+        HashMap<String, String> replacements = Maps.newHashMap();
+        replacements.put("%group%", groupName);
+        if (group == null) {
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+          return;
+        }
+        if (parent == null) {
+          replacements.put("%group%", parentName);
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+          return;
+        }
+        replacements.put("%group%", group.getName());
+        replacements.put("%parent%", parent.getName());
+        if (group.getParents().contains(parent)) {
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.parentalreadyset", replacements);
+          return;
+        }
+        if (group.equals(parent) || GroupDao.inheritsFrom(parent, group)) {
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.inheritancecycle", replacements);
+          return;
+        }
+        Dao.forType(Group.class)
+            .modify(
+                group.getId(),
+                (entityManager, current) ->
+                    current
+                        .getParents()
+                        .add(entityManager.getReference(Group.class, parent.getId())));
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.parentadd.success", replacements);
+      } catch (Exception e) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.error.internalerror", null);
+        GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to add parent group", e);
+      }
+    } else {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.group.help.parentadd", null);
+    }
+  }
+
+  private void executeParentDel(CommandSender sender, String[] args) {
+    if (args.length == 3) {
+      String groupName = args[1];
+      String parentName = args[2];
+      if (groupName.length() > 14 || parentName.length() > 14) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.nametoolong", null);
+        return;
+      }
+      try {
+        Group group = GroupDao.loadGroup(groupName);
+        HashMap<String, String> replacements = Maps.newHashMap();
+        if (group != null) {
+          replacements.put("%group%", group.getName());
+          replacements.put("%parent%", parentName);
+          for (Group parent : group.getParents()) {
+            if (parent.getName().equalsIgnoreCase(parentName)) {
+              Dao.forType(Group.class)
+                  .modify(group.getId(), current -> current.getParents().remove(parent));
+              replacements.put("%parent%", parent.getName());
+              GroupManagerPlugin.getInstance()
+                  .getTextManager()
+                  .sendMessage(sender, "gm.group.parentdel.success", replacements);
+              return;
+            }
+          }
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.parentnotset", replacements);
+        } else {
+          replacements.put("%group%", groupName);
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+        }
+      } catch (Exception e) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.error.internalerror", null);
+        GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to remove parent group", e);
+      }
+    } else {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.group.help.parentdel", null);
+    }
+  }
+
   private void executePrefix(CommandSender sender, String[] args) {
     if (args.length >= 2) {
       String groupName = args[1];
@@ -346,13 +574,15 @@ public class GmGroupCommand implements CommandExecutor {
           return;
         }
         if (ChatColor.stripColor(prefix).equalsIgnoreCase(" ")) prefix = prefix.trim();
-        Group group = GroupDao.getGroup(groupName);
+        Group group =
+            args.length >= 3 ? GroupDao.loadGroup(groupName) : GroupDao.getGroup(groupName);
         HashMap<String, String> replacements = new HashMap<>();
         if (group != null) {
           replacements.put("%group%", group.getName());
           if (args.length >= 3) {
-            group.setPrefix(prefix);
-            Dao.forType(Group.class).update(group);
+            String newPrefix = prefix;
+            Dao.forType(Group.class)
+                .modify(group.getId(), current -> current.setPrefix(newPrefix));
             replacements.put("%prefix%", prefix);
             GroupManagerPlugin.getInstance()
                 .getTextManager()
@@ -393,7 +623,8 @@ public class GmGroupCommand implements CommandExecutor {
         return;
       }
       try {
-        Group group = GroupDao.getGroup(groupName);
+        Group group =
+            args.length == 3 ? GroupDao.loadGroup(groupName) : GroupDao.getGroup(groupName);
         HashMap<String, String> replacements = new HashMap<>();
         if (group != null) {
           replacements.put("%group%", group.getName());
@@ -408,8 +639,9 @@ public class GmGroupCommand implements CommandExecutor {
                   .sendMessage(sender, "gm.group.error.priorityinvalid", null);
               return;
             }
-            group.setPriority(priority);
-            Dao.forType(Group.class).update(group);
+            int newPriority = priority;
+            Dao.forType(Group.class)
+                .modify(group.getId(), current -> current.setPriority(newPriority));
             replacements.put("%priority%", "" + priority);
             GroupManagerPlugin.getInstance()
                 .getTextManager()
@@ -501,6 +733,10 @@ public class GmGroupCommand implements CommandExecutor {
           replacements.put("%group%", group.getName());
           replacements.put("%prefix%", group.getPrefix());
           replacements.put("%priority%", group.getPriority() + "");
+          replacements.put(
+              "%parents%",
+              group.getParents().stream().map(Group::getName).collect(Collectors.joining(", ")));
+          replacements.put("%members%", String.valueOf(UserDao.countUsersInGroup(group)));
           GroupManagerPlugin.getInstance()
               .getTextManager()
               .sendMessage(sender, "gm.group.info.heading", replacements);
@@ -510,6 +746,12 @@ public class GmGroupCommand implements CommandExecutor {
           GroupManagerPlugin.getInstance()
               .getTextManager()
               .sendMessage(sender, "gm.group.info.priority", replacements);
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.info.parents", replacements);
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.group.info.members", replacements);
         } else {
           replacements.put("%group%", groupName);
           GroupManagerPlugin.getInstance()
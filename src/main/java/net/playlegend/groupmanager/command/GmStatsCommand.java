@@ -0,0 +1,148 @@
+package net.playlegend.groupmanager.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.permissible.PermissionTelemetryReport;
+import net.playlegend.groupmanager.util.CommandUtil;
+import net.playlegend.groupmanager.util.FileUtil;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+
+public class GmStatsCommand implements CommandExecutor {
+
+  public enum SubCommand {
+    SHOW("gm.stats.show"),
+    DUMP("gm.stats.dump");
+
+    @Getter private final String permission;
+
+    SubCommand(String permission) {
+      this.permission = permission;
+    }
+  }
+
+  @Override
+  public boolean onCommand(
+      @NotNull CommandSender sender,
+      @NotNull Command command,
+      @NotNull String label,
+      @NotNull String[] args) {
+    SubCommand subCommand = SubCommand.SHOW;
+    if (args.length > 0) {
+      try {
+        subCommand = SubCommand.valueOf(args[0].toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.stats.help", null);
+        return true;
+      }
+    }
+    if (!sender.hasPermission(subCommand.getPermission())) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.error.nopermission", null);
+      return true;
+    }
+    SubCommand finalSubCommand = subCommand;
+    Bukkit.getScheduler()
+        .runTaskAsynchronously(
+            GroupManagerPlugin.getInstance(),
+            () -> {
+              // always show the latest numbers, not the ones of the last scheduled flush
+              PermissionTelemetryReport report =
+                  GroupManagerPlugin.getInstance().getPermissibleManager().getTelemetry().flush();
+              if (finalSubCommand == SubCommand.SHOW) {
+                this.displayReport(sender, report);
+              } else {
+                this.dumpReport(sender, report);
+              }
+            });
+    return true;
+  }
+
+  private void displayReport(CommandSender sender, PermissionTelemetryReport report) {
+    HashMap<String, String> replacements = new HashMap<>();
+    CommandUtil.insertDurationReplacement(report.getStartedAt(), sender, replacements);
+    replacements.put("%checks%", String.valueOf(report.getChecks()));
+    replacements.put("%rate%", String.format(Locale.ROOT, "%.1f", report.getChecksPerSecond()));
+    replacements.put(
+        "%hitrate%", String.format(Locale.ROOT, "%.1f%%", report.getCacheHitRate() * 100));
+    replacements.put("%uncached%", String.valueOf(report.getUncachedChecks()));
+    replacements.put("%samples%", String.valueOf(report.getLatencySamples()));
+    replacements.put("%p50%", formatNanos(report.getLatencyP50Nanos()));
+    replacements.put("%p90%", formatNanos(report.getLatencyP90Nanos()));
+    replacements.put("%p99%", formatNanos(report.getLatencyP99Nanos()));
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(sender, "gm.stats.heading", replacements);
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(sender, "gm.stats.checks", replacements);
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(sender, "gm.stats.hitrate", replacements);
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(sender, "gm.stats.latency", replacements);
+    this.displayNodes(sender, "gm.stats.mostchecked", report.getMostCheckedNodes());
+    this.displayNodes(sender, "gm.stats.mostmissed", report.getMostMissedNodes());
+  }
+
+  private void displayNodes(CommandSender sender, String headingKey, Map<String, Long> nodes) {
+    GroupManagerPlugin.getInstance().getTextManager().sendMessage(sender, headingKey, null);
+    if (nodes.isEmpty()) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.stats.node.empty", null);
+      return;
+    }
+    HashMap<String, String> replacements = new HashMap<>();
+    for (Map.Entry<String, Long> node : nodes.entrySet()) {
+      replacements.put("%permission%", node.getKey());
+      replacements.put("%count%", String.valueOf(node.getValue()));
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.stats.node.entry", replacements);
+    }
+  }
+
+  private void dumpReport(CommandSender sender, PermissionTelemetryReport report) {
+    File file =
+        new File(
+            new File(FileUtil.PLUGIN_ROOT_DIRECTORY, "telemetry"),
+            "telemetry-" + report.getCreatedAt() + ".json");
+    try {
+      if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+        throw new IOException("Could not create directory " + file.getParentFile());
+      }
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+      HashMap<String, String> replacements = new HashMap<>();
+      replacements.put("%file%", file.getPath());
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.stats.dump.success", replacements);
+    } catch (IOException e) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.error.internalerror", null);
+      GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to dump telemetry.", e);
+    }
+  }
+
+  private static String formatNanos(long nanos) {
+    if (nanos == 0) return "-";
+    return String.format(Locale.ROOT, "%.1f µs", nanos / 1000D);
+  }
+}
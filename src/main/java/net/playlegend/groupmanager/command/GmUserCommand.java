@@ -3,10 +3,13 @@ package net.playlegend.groupmanager.command;
 import lombok.Getter;
 import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.DataAccessException;
 import net.playlegend.groupmanager.datastore.wrapper.GroupDao;
 import net.playlegend.groupmanager.datastore.wrapper.UserDao;
+import net.playlegend.groupmanager.datastore.wrapper.UserPermissionDao;
 import net.playlegend.groupmanager.model.Group;
 import net.playlegend.groupmanager.model.User;
+import net.playlegend.groupmanager.model.UserPermission;
 import net.playlegend.groupmanager.util.CommandUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
@@ -18,13 +21,17 @@ import org.joda.time.format.PeriodFormatter;
 import org.joda.time.format.PeriodFormatterBuilder;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
 
 public class GmUserCommand implements CommandExecutor {
 
   public enum SubCommand {
-    GROUP("gm.user.group");
+    GROUP("gm.user.group"),
+    ADDGROUP("gm.user.addgroup"),
+    DELGROUP("gm.user.delgroup"),
+    PERM("gm.user.perm");
 
     @Getter private final String permission;
 
@@ -106,6 +113,12 @@ public class GmUserCommand implements CommandExecutor {
             () -> {
               if (subCommand == SubCommand.GROUP) {
                 this.executeGroup(sender, args);
+              } else if (subCommand == SubCommand.ADDGROUP) {
+                this.executeSecondaryGroup(sender, args, true);
+              } else if (subCommand == SubCommand.DELGROUP) {
+                this.executeSecondaryGroup(sender, args, false);
+              } else if (subCommand == SubCommand.PERM) {
+                this.executePerm(sender, args);
               }
             });
   }
@@ -166,6 +179,12 @@ public class GmUserCommand implements CommandExecutor {
     replacements.put("%group%", user.getGroup().getName());
 
     CommandUtil.insertDurationReplacement(user, commandSender, replacements);
+    StringBuilder secondaryGroups = new StringBuilder();
+    for (Group secondaryGroup : user.getSecondaryGroups()) {
+      if (secondaryGroups.length() > 0) secondaryGroups.append(", ");
+      secondaryGroups.append(secondaryGroup.getName());
+    }
+    replacements.put("%groups%", secondaryGroups.length() > 0 ? secondaryGroups.toString() : "-");
 
     GroupManagerPlugin.getInstance()
         .getTextManager()
@@ -176,6 +195,9 @@ public class GmUserCommand implements CommandExecutor {
     GroupManagerPlugin.getInstance()
         .getTextManager()
         .sendMessage(commandSender, "gm.user.group.info.duration", replacements);
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(commandSender, "gm.user.group.info.secondarygroups", replacements);
   }
 
   private void updateUserGroup(CommandSender commandSender, User user, String[] args) {
@@ -184,11 +206,15 @@ public class GmUserCommand implements CommandExecutor {
       try {
         Group group = GroupDao.getGroup(groupName);
         if (group != null) {
-          user.setGroup(group);
-          user.setGroupValidUntil(-1);
-          Dao.forType(User.class).update(user);
-          this.displayUserInfo(commandSender, user);
-          GroupManagerPlugin.getInstance().rebuildEverything();
+          User updatedUser =
+              Dao.forType(User.class)
+                  .modify(
+                      user.getUuid(),
+                      currentUser -> {
+                        currentUser.setGroup(group);
+                        currentUser.setGroupValidUntil(-1);
+                      });
+          this.displayUserInfo(commandSender, updatedUser);
         } else {
           HashMap<String, String> replacements = new HashMap<>();
           replacements.put("%group%", groupName);
@@ -217,11 +243,16 @@ public class GmUserCommand implements CommandExecutor {
       try {
         Group group = GroupDao.getGroup(groupName);
         if (group != null) {
-          user.setGroup(group);
-          user.setGroupValidUntil(System.currentTimeMillis() + duration);
-          Dao.forType(User.class).update(user);
-          this.displayUserInfo(commandSender, user);
-          GroupManagerPlugin.getInstance().rebuildEverything();
+          long validUntil = System.currentTimeMillis() + duration;
+          User updatedUser =
+              Dao.forType(User.class)
+                  .modify(
+                      user.getUuid(),
+                      currentUser -> {
+                        currentUser.setGroup(group);
+                        currentUser.setGroupValidUntil(validUntil);
+                      });
+          this.displayUserInfo(commandSender, updatedUser);
         } else {
           HashMap<String, String> replacements = new HashMap<>();
           replacements.put("%group%", groupName);
@@ -237,4 +268,194 @@ public class GmUserCommand implements CommandExecutor {
       }
     }
   }
+
+  private void executeSecondaryGroup(CommandSender sender, String[] args, boolean add) {
+    String helpKey = add ? "gm.user.help.addgroup" : "gm.user.help.delgroup";
+    if (args.length != 3) {
+      GroupManagerPlugin.getInstance().getTextManager().sendMessage(sender, helpKey, null);
+      return;
+    }
+    String playerName = args[1];
+    String groupName = args[2];
+    HashMap<String, String> replacements = new HashMap<>();
+    replacements.put("%player%", playerName);
+    replacements.put("%group%", groupName);
+    try {
+      User user = UserDao.getUser(playerName);
+      if (user == null) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.user.error.userdoesnotexist", replacements);
+        return;
+      }
+      Group group = GroupDao.getGroup(groupName);
+      if (group == null) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.group.error.groupdoesnotexist", replacements);
+        return;
+      }
+      if (add) {
+        if (group.equals(user.getGroup()) || user.getSecondaryGroups().contains(group)) {
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.user.error.alreadyingroup", replacements);
+          return;
+        }
+      } else if (!user.getSecondaryGroups().contains(group)) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.user.error.notinsecondarygroup", replacements);
+        return;
+      }
+      Dao.forType(User.class)
+          .modify(
+              user.getUuid(),
+              currentUser -> {
+                if (add) {
+                  currentUser.getSecondaryGroups().add(group);
+                } else {
+                  currentUser.getSecondaryGroups().remove(group);
+                }
+              });
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(
+              sender,
+              add ? "gm.user.addgroup.success" : "gm.user.delgroup.success",
+              replacements);
+    } catch (Exception e) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.error.internalerror", null);
+      GroupManagerPlugin.getInstance()
+          .log(Level.WARNING, "Failed to update secondary group data.", e);
+    }
+  }
+
+  private void executePerm(CommandSender sender, String[] args) {
+    if (args.length == 2 || args.length >= 4) {
+      String playerName = args[1];
+      try {
+        User user = UserDao.getUser(playerName);
+        if (user != null) {
+          if (args.length == 2) {
+            this.displayUserPermissions(sender, user);
+          } else {
+            this.updateUserPermission(sender, user, args);
+          }
+        } else {
+          HashMap<String, String> replacements = new HashMap<>();
+          replacements.put("%player%", playerName);
+          GroupManagerPlugin.getInstance()
+              .getTextManager()
+              .sendMessage(sender, "gm.user.error.userdoesnotexist", replacements);
+        }
+      } catch (Exception e) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(sender, "gm.error.internalerror", null);
+        GroupManagerPlugin.getInstance()
+            .log(Level.WARNING, "Failed to update user permission data.", e);
+      }
+    } else {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(sender, "gm.user.help.perm", null);
+    }
+  }
+
+  private void displayUserPermissions(CommandSender commandSender, User user)
+      throws DataAccessException {
+    HashMap<String, String> replacements = new HashMap<>();
+    replacements.put("%prefix%", user.getGroup().getPrefix());
+    replacements.put("%player%", user.getName());
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(commandSender, "gm.user.perm.info.heading", replacements);
+    List<UserPermission> userPermissions = UserPermissionDao.getUserPermissions(user.getUuid());
+    long now = System.currentTimeMillis();
+    userPermissions.removeIf(userPermission -> userPermission.isExpired(now));
+    if (userPermissions.isEmpty()) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(commandSender, "gm.user.perm.info.empty", null);
+      return;
+    }
+    for (UserPermission userPermission : userPermissions) {
+      replacements.put("%permission%", userPermission.getPermission());
+      replacements.put("%value%", String.valueOf(userPermission.isGranted()));
+      CommandUtil.insertDurationReplacement(
+          userPermission.getValidUntil(), commandSender, replacements);
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(commandSender, "gm.user.perm.info.entry", replacements);
+    }
+  }
+
+  private void updateUserPermission(CommandSender commandSender, User user, String[] args)
+      throws DataAccessException {
+    String permission = args[2];
+    String valueString = args[3].toLowerCase(Locale.ROOT);
+    HashMap<String, String> replacements = new HashMap<>();
+    replacements.put("%player%", user.getName());
+    replacements.put("%permission%", permission);
+    UserPermission userPermission = UserPermissionDao.getUserPermission(user, permission);
+    if (valueString.equals("unset")) {
+      if (userPermission == null) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(commandSender, "gm.user.error.permissionnotset", replacements);
+        return;
+      }
+      Dao.forType(UserPermission.class).delete(userPermission);
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(commandSender, "gm.user.perm.unset.success", replacements);
+      return;
+    }
+    if (!valueString.equals("true") && !valueString.equals("false")) {
+      GroupManagerPlugin.getInstance()
+          .getTextManager()
+          .sendMessage(commandSender, "gm.user.help.perm", null);
+      return;
+    }
+    long validUntil = -1;
+    if (args.length > 4) {
+      String durationString = CommandUtil.combineStringsInArray(args, 4, args.length - 1);
+      try {
+        validUntil =
+            System.currentTimeMillis()
+                + this.periodFormatter.parsePeriod(durationString).toStandardDuration().getMillis();
+      } catch (IllegalArgumentException e) {
+        GroupManagerPlugin.getInstance()
+            .getTextManager()
+            .sendMessage(commandSender, "gm.user.error.wrongtimeformat", null);
+        return;
+      }
+    }
+    boolean granted = Boolean.parseBoolean(valueString);
+    if (userPermission == null) {
+      userPermission = new UserPermission();
+      userPermission.setUser(user);
+      userPermission.setPermission(permission);
+      userPermission.setGranted(granted);
+      userPermission.setValidUntil(validUntil);
+      Dao.forType(UserPermission.class).put(userPermission);
+    } else {
+      long newValidUntil = validUntil;
+      Dao.forType(UserPermission.class)
+          .modify(
+              userPermission.getId(),
+              current -> {
+                current.setGranted(granted);
+                current.setValidUntil(newValidUntil);
+              });
+    }
+    replacements.put("%value%", String.valueOf(granted));
+    CommandUtil.insertDurationReplacement(validUntil, commandSender, replacements);
+    GroupManagerPlugin.getInstance()
+        .getTextManager()
+        .sendMessage(commandSender, "gm.user.perm.set.success", replacements);
+  }
 }
@@ -9,6 +9,30 @@ public class GroupManagerConfig {
   @Getter
   private String fallbackLocale = "de_de";
 
+  @JsonProperty("database_pool_size")
+  @Getter
+  private int databasePoolSize = 10;
+
+  @JsonProperty("database_executor_threads")
+  @Getter
+  private int databaseExecutorThreads = 4;
+
+  @JsonProperty("database_executor_queue_size")
+  @Getter
+  private int databaseExecutorQueueSize = 256;
+
+  @JsonProperty("database_executor_virtual_threads")
+  @Getter
+  private boolean databaseExecutorVirtualThreads = false;
+
+  @JsonProperty("user_cache_size")
+  @Getter
+  private int userCacheSize = 1000;
+
+  @JsonProperty("user_cache_expiry_seconds")
+  @Getter
+  private int userCacheExpirySeconds = 600;
+
   @JsonProperty("cache_rebuild_interval_ticks")
   @Getter
   private int cacheRebuildInterval = 6000;
@@ -20,4 +44,32 @@ public class GroupManagerConfig {
   @JsonProperty("group_validity_check_interval_ticks")
   @Getter
   private int groupValidityCheckInterval = 100;
+
+  @JsonProperty("checked_permission_cache_size")
+  @Getter
+  private int checkedPermissionCacheSize = 4096;
+
+  @JsonProperty("permission_node_limit")
+  @Getter
+  private int permissionNodeLimit = 65536;
+
+  @JsonProperty("permission_pushes_per_tick")
+  @Getter
+  private int permissionPushesPerTick = 20;
+
+  @JsonProperty("prewarm_node_count")
+  @Getter
+  private int prewarmNodeCount = 1024;
+
+  @JsonProperty("telemetry_flush_interval_ticks")
+  @Getter
+  private int telemetryFlushInterval = 200;
+
+  @JsonProperty("telemetry_latency_sample_rate")
+  @Getter
+  private int telemetryLatencySampleRate = 64;
+
+  @JsonProperty("telemetry_top_nodes")
+  @Getter
+  private int telemetryTopNodes = 10;
 }
@@ -1,9 +1,10 @@
 package net.playlegend.groupmanager.datastore;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
@@ -11,10 +12,18 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
 import net.playlegend.groupmanager.GroupManagerPlugin;
+import org.hibernate.StaleStateException;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 /**
@@ -27,36 +36,308 @@ import java.util.logging.Level;
  */
 public class Dao<T> {
 
-  private final Object lockObject = new Object();
-  private static final Object staticLockObject = new Object();
+  private static final int WRITE_LOCK_STRIPES = 64;
+
+  private static final int MAX_MODIFY_ATTEMPTS = 5;
+
+  /** Query hint loading exactly the associations contained in an entity graph. */
+  public static final String FETCH_GRAPH_HINT = "jakarta.persistence.fetchgraph";
+
+  private static final Map<Class<?>, Lock[]> WRITE_LOCKS = new ConcurrentHashMap<>();
+
+  private static final Map<Class<?>, List<WriteListener<?>>> WRITE_LISTENERS =
+      new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<List<Runnable>> PENDING_NOTIFICATIONS = new ThreadLocal<>();
+
   private final Class<T> entityClass;
-  private EntityManager entityManager;
+
+  private final String defaultFetchPlan;
 
   /**
-   * Constructs a new DAO. Note that the resulting DAO is not cached automatically, so it is
-   * generally advised to use {@code Dao.fromType(Class<T>)} in order to prevent exhausting the
-   * connection pool.
+   * Constructs a new DAO. DAOs do not hold any connection or entity manager themselves, every
+   * operation uses its own short-lived entity manager backed by the connection pool. It is still
+   * advised to use {@code Dao.forType(Class<T>)} in order to reuse instances. The entity graph
+   * declared on the entity, if any, is the default fetch plan of every operation loading entities.
    *
    * @param entityClass the dao type
    */
   public Dao(Class<T> entityClass) {
     this.entityClass = entityClass;
-    this.entityManager = this.createEntityManager();
+    NamedEntityGraph entityGraph = entityClass.getAnnotation(NamedEntityGraph.class);
+    this.defaultFetchPlan = entityGraph != null ? entityGraph.name() : null;
+  }
+
+  /**
+   * Unit of work executed within a transaction on a short-lived entity manager.
+   *
+   * @param <R> the result type of the operation
+   */
+  @FunctionalInterface
+  public interface Operation<R> {
+
+    /**
+     * Executes the operation. The entity manager is closed afterwards, so returned entities are
+     * detached.
+     *
+     * @param entityManager the entity manager to use
+     * @return the result of the operation
+     * @throws Exception if the operation fails, which rolls back the transaction
+     */
+    R execute(EntityManager entityManager) throws Exception;
+  }
+
+  /**
+   * Opens an entity manager, runs an operation in a transaction and closes the entity manager
+   * again. As every operation uses its own entity manager and pooled connection, operations do
+   * not block each other.
+   *
+   * @param operation the operation to run
+   * @return the result of the operation
+   * @param <R> the result type of the operation
+   * @throws DataAccessException if the operation fails
+   */
+  private static <R> R execute(Operation<R> operation) throws DataAccessException {
+    EntityManager entityManager =
+        GroupManagerPlugin.getInstance().getSessionFactory().createEntityManager();
+    EntityTransaction transaction = entityManager.getTransaction();
+    List<Runnable> notifications = new ArrayList<>();
+    R result;
+    PENDING_NOTIFICATIONS.set(notifications);
+    try {
+      transaction.begin();
+      result = operation.execute(entityManager);
+      transaction.commit();
+    } catch (Exception e) {
+      if (transaction.isActive()) transaction.rollback();
+      throw new DataAccessException(e);
+    } finally {
+      PENDING_NOTIFICATIONS.remove();
+      entityManager.close();
+    }
+    // only committed changes are reported, and only once the entities are detached
+    notifications.forEach(Runnable::run);
+    return result;
+  }
+
+  /**
+   * Listens for entities of a type being written to the data store. Listeners are invoked on the
+   * thread which wrote the entities, after the transaction has been committed and before caches
+   * are rebuilt.
+   *
+   * @param <T> the entity type
+   */
+  public interface WriteListener<T> {
+
+    /**
+     * Invoked after an entity has been inserted or updated.
+     *
+     * @param entity the detached entity as it has been written
+     */
+    void written(T entity);
+
+    /**
+     * Invoked after an entity has been deleted.
+     *
+     * @param entity the deleted entity
+     */
+    void deleted(T entity);
+  }
+
+  /**
+   * Registers a listener for writes of an entity type.
+   *
+   * @param entityClass the entity type to listen for
+   * @param writeListener the listener to register
+   * @param <T> the entity type
+   */
+  public static <T> void addWriteListener(Class<T> entityClass, WriteListener<T> writeListener) {
+    Dao.WRITE_LISTENERS
+        .computeIfAbsent(entityClass, key -> new CopyOnWriteArrayList<>())
+        .add(writeListener);
   }
 
-  private EntityManager createEntityManager() {
-    return GroupManagerPlugin.getInstance().getSessionFactory().createEntityManager();
+  /** Unregisters all write listeners. */
+  public static void clearWriteListeners() {
+    Dao.WRITE_LISTENERS.clear();
   }
 
-  private EntityManager getEntityManager() {
-    if (this.entityManager.isOpen()) {
-      return this.entityManager;
+  /**
+   * Reports an inserted or updated entity to the write listeners of its type. Within an operation,
+   * the listeners are invoked once the transaction has been committed. Operations which write
+   * entities without using the methods of this DAO have to report them themselves.
+   *
+   * @param entity the written entity
+   */
+  public void notifyWritten(T entity) {
+    this.notifyListeners(writeListener -> writeListener.written(entity));
+  }
+
+  /**
+   * Reports a deleted entity to the write listeners of its type.
+   *
+   * @see Dao#notifyWritten(T)
+   * @param entity the deleted entity
+   */
+  public void notifyDeleted(T entity) {
+    this.notifyListeners(writeListener -> writeListener.deleted(entity));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void notifyListeners(Consumer<WriteListener<T>> notification) {
+    List<WriteListener<?>> writeListeners = Dao.WRITE_LISTENERS.get(this.entityClass);
+    if (writeListeners == null) return;
+    Runnable runnable =
+        () -> writeListeners.forEach(listener -> notification.accept((WriteListener<T>) listener));
+    List<Runnable> notifications = PENDING_NOTIFICATIONS.get();
+    if (notifications != null) {
+      notifications.add(runnable);
+    } else {
+      runnable.run();
     }
-    return (this.entityManager = this.createEntityManager());
   }
 
   /**
-   * Inserts an object into the data store.
+   * Mutation of a managed entity, which may use the entity manager to look up other entities.
+   *
+   * @param <T> the entity type
+   */
+  @FunctionalInterface
+  public interface Mutation<T> {
+
+    /**
+     * Applies the mutation.
+     *
+     * @param entityManager the entity manager the entity is managed by
+     * @param entity the managed entity to mutate
+     * @throws Exception if the mutation fails, which rolls back the transaction
+     */
+    void apply(EntityManager entityManager, T entity) throws Exception;
+  }
+
+  /**
+   * Runs a manipulation of a single entity while holding the write lock of the entity. Every
+   * entity type has its own set of locks, so writes to entities of different types never contend,
+   * and writes to entities of the same type with different keys usually do not either. Writes to
+   * the same entity are serialized. Caches are rebuilt once the lock has been released.
+   *
+   * @param id the id of the manipulated entity or null if it does not have one yet
+   * @param operation the operation to run
+   * @return the result of the operation
+   * @param <R> the result type of the operation
+   * @throws DataAccessException if something goes wrong when manipulating the data
+   */
+  private <R> R write(Object id, Operation<R> operation) throws DataAccessException {
+    // a new entity cannot be written by anyone else yet
+    if (id == null) return Dao.transaction(operation);
+    Lock[] locks =
+        WRITE_LOCKS.computeIfAbsent(
+            this.entityClass,
+            key -> {
+              Lock[] stripes = new Lock[WRITE_LOCK_STRIPES];
+              for (int i = 0; i < WRITE_LOCK_STRIPES; i++) {
+                stripes[i] = new ReentrantLock();
+              }
+              return stripes;
+            });
+    Lock lock = locks[Math.floorMod(id.hashCode(), WRITE_LOCK_STRIPES)];
+    R result;
+    lock.lock();
+    try {
+      result = Dao.execute(operation);
+    } finally {
+      lock.unlock();
+    }
+    GroupManagerPlugin.getInstance().rebuildEverything();
+    return result;
+  }
+
+  /**
+   * Loads an entity by its id using the default fetch plan, so that the same associations are
+   * loaded as by queries and none of them has to be loaded once the entity is detached.
+   *
+   * @param entityManager the entity manager to load the entity with
+   * @param id the id of the entity
+   * @return the managed entity or null if there is no entity with the given id
+   */
+  private T load(EntityManager entityManager, Object id) {
+    if (this.defaultFetchPlan == null) return entityManager.find(this.entityClass, id);
+    return entityManager.find(
+        this.entityClass,
+        id,
+        Map.of(FETCH_GRAPH_HINT, entityManager.getEntityGraph(this.defaultFetchPlan)));
+  }
+
+  /**
+   * Writes pending changes of a managed entity and loads it again using the default fetch plan, so
+   * that write listeners receive a completely loaded copy instead of the given instance.
+   *
+   * @param entityManager the entity manager the entity is managed by
+   * @param entity the written entity
+   * @return the reloaded entity
+   */
+  private T reload(EntityManager entityManager, T entity) {
+    Object id = this.getIdentifier(entity);
+    entityManager.flush();
+    entityManager.detach(entity);
+    return this.load(entityManager, id);
+  }
+
+  private Object getIdentifier(T entity) {
+    return GroupManagerPlugin.getInstance()
+        .getSessionFactory()
+        .getPersistenceUnitUtil()
+        .getIdentifier(entity);
+  }
+
+  /**
+   * Checks whether an exception has been caused by another transaction changing the same entity
+   * concurrently, which is detected using the version of the entity.
+   *
+   * @param e the exception to check
+   * @return true if the exception has been caused by a conflicting write, false otherwise
+   */
+  private static boolean isConflict(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs several manipulations in a single transaction, so they are either all applied or none of
+   * them is. Caches are rebuilt once afterwards.
+   *
+   * @param operation the operation to run
+   * @return the result of the operation
+   * @param <R> the result type of the operation
+   * @throws DataAccessException if something goes wrong when manipulating the data
+   */
+  public static <R> R transaction(Operation<R> operation) throws DataAccessException {
+    R result = Dao.execute(operation);
+    GroupManagerPlugin.getInstance().rebuildEverything();
+    return result;
+  }
+
+  /**
+   * Runs a query which does not manipulate any data, such as an aggregate query. Unlike {@link
+   * #transaction(Operation)}, caches are not rebuilt afterwards.
+   *
+   * @param operation the operation to run
+   * @return the result of the operation
+   * @param <R> the result type of the operation
+   * @throws DataAccessException if something goes wrong when accessing the data
+   */
+  public static <R> R query(Operation<R> operation) throws DataAccessException {
+    return Dao.execute(operation);
+  }
+
+  /**
+   * Inserts an object into the data store. The write listeners are handed a copy of the stored
+   * entity, as caches keep the entities reported to them and make them read-only, so the given
+   * entity stays writable for the caller.
    *
    * @param entity the entity to store
    * @throws DataAccessException if something goes wrong when accessing and manipulating the data
@@ -65,89 +346,144 @@ public class Dao<T> {
   @Transactional
   public void put(T entity) throws DataAccessException {
     if (entity == null) return;
-    synchronized (this.lockObject) {
-      try {
-        EntityManager entityManager = this.getEntityManager();
-        EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-        entityManager.persist(entity);
-        transaction.commit();
-        GroupManagerPlugin.getInstance().rebuildEverything();
-      } catch (Exception e) {
-        throw new DataAccessException(e);
-      }
-    }
+    Dao.transaction(
+        entityManager -> {
+          entityManager.persist(entity);
+          if (Dao.WRITE_LISTENERS.containsKey(this.entityClass)) {
+            this.notifyWritten(this.reload(entityManager, entity));
+          }
+          return null;
+        });
   }
 
   /**
+   * Stores an object in the data store asynchronously.
+   *
    * @see Dao#put(T)
+   * @param entity the entity to store
+   * @return a future completed with the stored entity
+   */
+  public CompletableFuture<T> putAsync(T entity) {
+    return DataAccessExecutor.submit(
+        () -> {
+          this.put(entity);
+          return entity;
+        });
+  }
+
+  /**
+   * @see Dao#putAsync(T)
    * @see DataAccessCallback
    * @param entity the entity to store
    * @param dataAccessCallback the callback to handle the resulting data or eventual errors
    */
   public void putAsync(T entity, DataAccessCallback<T> dataAccessCallback) {
-    new Thread(
-            () -> {
-              try {
-                this.put(entity);
-                dataAccessCallback.success(Lists.newArrayList(entity));
-              } catch (DataAccessException e) {
-                dataAccessCallback.error(Lists.newArrayList(entity), e);
-                GroupManagerPlugin.getInstance()
-                    .log(Level.WARNING, "Failed to put entity asynchronously.", e);
-              }
-            })
-        .start();
+    adapt(
+        this.putAsync(entity).thenApply(Lists::newArrayList),
+        Lists.newArrayList(entity),
+        dataAccessCallback,
+        "Failed to put entity asynchronously.");
   }
 
   /**
-   * Updates an object in the data store.
+   * Updates an object in the data store. If the entity has been changed by someone else since it
+   * has been loaded, the update is rejected instead of overwriting the other change, and it is not
+   * retried, as the changes made to the stale entity cannot be told apart from its stale state.
+   * Only use this with entities the caller has just loaded itself. Use {@link #modify(Object,
+   * Consumer)} to change entities served from a cache or to have conflicting changes retried.
    *
    * @param entity the entity to update containing up-to-date variables
-   * @return the entity given
+   * @return the updated entity, carrying its new version
    * @throws DataAccessException if something goes wrong when manipulating the data
    */
   @Transactional
   public T update(T entity) throws DataAccessException {
     if (entity == null) return null;
-    synchronized (this.lockObject) {
+    return this.write(
+        this.getIdentifier(entity),
+        entityManager -> {
+          // the merged instance has only loaded the associations the given entity has loaded
+          T mergedEntity = this.reload(entityManager, entityManager.merge(entity));
+          this.notifyWritten(mergedEntity);
+          return mergedEntity;
+        });
+  }
+
+  /**
+   * Loads the current state of an entity, applies a mutation to it and writes it back in a single
+   * transaction. If the entity is changed by someone else in the meantime, the write is detected
+   * as conflicting using the version of the entity, and the mutation is applied again to the then
+   * current state. The mutation therefore must not depend on any state loaded earlier.
+   *
+   * @param id the id of the entity to modify
+   * @param mutation the mutation to apply, may be invoked several times
+   * @return the modified entity or null if there is no entity with the given id
+   * @throws DataAccessException if something goes wrong when manipulating the data or the write
+   *     still conflicts after several attempts
+   */
+  public T modify(Object id, Consumer<T> mutation) throws DataAccessException {
+    return this.modify(id, (entityManager, entity) -> mutation.accept(entity));
+  }
+
+  /**
+   * Loads the current state of an entity, applies a mutation to it and writes it back, retrying
+   * conflicting writes. The mutation is handed the entity manager, so associated entities can be
+   * looked up as managed entities instead of attaching detached ones.
+   *
+   * @see Dao#modify(Object, Consumer)
+   * @param id the id of the entity to modify
+   * @param mutation the mutation to apply, may be invoked several times
+   * @return the modified entity or null if there is no entity with the given id
+   * @throws DataAccessException if something goes wrong when manipulating the data or the write
+   *     still conflicts after several attempts
+   */
+  public T modify(Object id, Mutation<T> mutation) throws DataAccessException {
+    for (int attempt = 1; ; attempt++) {
       try {
-        EntityManager entityManager = this.getEntityManager();
-        EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-        entityManager.merge(entity);
-        transaction.commit();
-        GroupManagerPlugin.getInstance().rebuildEverything();
-        return entity;
-      } catch (Exception e) {
-        throw new DataAccessException(e);
+        return this.write(
+            id,
+            entityManager -> {
+              T entity = this.load(entityManager, id);
+              if (entity != null) {
+                mutation.apply(entityManager, entity);
+                this.notifyWritten(entity);
+              }
+              return entity;
+            });
+      } catch (DataAccessException e) {
+        if (attempt >= MAX_MODIFY_ATTEMPTS || !isConflict(e)) throw e;
       }
     }
   }
 
   /**
+   * Updates an object in the data store asynchronously.
+   *
    * @see Dao#update(T)
+   * @param entity the entity to update containing up-to-date variables
+   * @return a future completed with the updated entity
+   */
+  public CompletableFuture<T> updateAsync(T entity) {
+    return DataAccessExecutor.submit(() -> this.update(entity));
+  }
+
+  /**
+   * @see Dao#updateAsync(T)
    * @see DataAccessCallback
    * @param entity the entity to update containing up-to-date variables
    * @param dataAccessCallback the callback to handle the resulting data or eventual errors
    */
   public void updateAsync(T entity, DataAccessCallback<T> dataAccessCallback) {
-    new Thread(
-            () -> {
-              try {
-                T newEntity = this.update(entity);
-                dataAccessCallback.success(Lists.newArrayList(newEntity));
-              } catch (DataAccessException e) {
-                dataAccessCallback.error(Lists.newArrayList(entity), e);
-                GroupManagerPlugin.getInstance()
-                    .log(Level.WARNING, "Failed to update entity asynchronously.", e);
-              }
-            })
-        .start();
+    adapt(
+        this.updateAsync(entity).thenApply(Lists::newArrayList),
+        Lists.newArrayList(entity),
+        dataAccessCallback,
+        "Failed to update entity asynchronously.");
   }
 
   /**
-   * Deletes an object from the data store.
+   * Deletes an object from the data store. The current state of the entity is deleted, even if the
+   * given entity is outdated, so entities served from a cache may be deleted as well.
    *
    * @param entity the entity to delete
    * @throws DataAccessException if something goes wrong when accessing or manipulating the data
@@ -155,142 +491,231 @@ public class Dao<T> {
   @Transactional
   public void delete(T entity) throws DataAccessException {
     if (entity == null) return;
-    synchronized (this.lockObject) {
+    Object id = this.getIdentifier(entity);
+    if (id == null) return;
+    this.delete(id, (entityManager, managedEntity) -> {});
+  }
+
+  /**
+   * Deletes the current state of an entity, after applying a mutation to it in the same
+   * transaction, which may for example detach other entities from it first. Like {@link
+   * #modify(Object, Mutation)}, the deletion holds the write lock of the entity and is retried if
+   * it conflicts with a concurrent write of any of the entities it changes.
+   *
+   * @param id the id of the entity to delete
+   * @param mutation the mutation to apply before deleting, may be invoked several times
+   * @return true if the entity has been deleted, false if there is no entity with the given id
+   * @throws DataAccessException if something goes wrong when manipulating the data or the deletion
+   *     still conflicts after several attempts
+   */
+  public boolean delete(Object id, Mutation<T> mutation) throws DataAccessException {
+    if (id == null) return false;
+    for (int attempt = 1; ; attempt++) {
       try {
-        EntityManager entityManager = getEntityManager();
-        EntityTransaction entityTransaction = entityManager.getTransaction();
-        entityTransaction.begin();
-        entity = entityManager.merge(entity);
-        entityManager.remove(entity);
-        entityTransaction.commit();
-        GroupManagerPlugin.getInstance().rebuildEverything();
-      } catch (Exception e) {
-        throw new DataAccessException(e);
+        return this.write(
+            id,
+            entityManager -> {
+              T entity = this.load(entityManager, id);
+              if (entity == null) return false;
+              mutation.apply(entityManager, entity);
+              entityManager.remove(entity);
+              this.notifyDeleted(entity);
+              return true;
+            });
+      } catch (DataAccessException e) {
+        if (attempt >= MAX_MODIFY_ATTEMPTS || !isConflict(e)) throw e;
       }
     }
   }
 
   /**
+   * Deletes an object from the data store asynchronously.
+   *
    * @see Dao#delete(T)
+   * @param entity the entity to delete
+   * @return a future completed with the deleted entity
+   */
+  public CompletableFuture<T> deleteAsync(T entity) {
+    return DataAccessExecutor.submit(
+        () -> {
+          this.delete(entity);
+          return entity;
+        });
+  }
+
+  /**
+   * @see Dao#deleteAsync(T)
    * @see DataAccessCallback
    * @param entity the entity to delete
    * @param dataAccessCallback the callback to handle the resulting data or eventual errors
    */
   public void deleteAsync(T entity, DataAccessCallback<T> dataAccessCallback) {
-    new Thread(
-            () -> {
-              try {
-                this.delete(entity);
-                dataAccessCallback.success(Lists.newArrayList(entity));
-              } catch (DataAccessException e) {
-                dataAccessCallback.error(Lists.newArrayList(entity), e);
-                GroupManagerPlugin.getInstance()
-                    .log(Level.WARNING, "Failed to delete entity asynchronously.", e);
-              }
-            })
-        .start();
+    adapt(
+        this.deleteAsync(entity).thenApply(Lists::newArrayList),
+        Lists.newArrayList(entity),
+        dataAccessCallback,
+        "Failed to delete entity asynchronously.");
   }
 
   /**
    * Searches for objects fulfilling the given criteria, puts them into a list and returns them.
+   * Associations are loaded using the default fetch plan of the entity.
    *
    * @param criteriaAdapter the criteria adapter used to supply a set of predicates
    * @return a list containing all objects fulfilling the criteria
    * @throws DataAccessException if something goes wrong when accessing the data store
    */
   public List<T> find(CriteriaAdapter<T> criteriaAdapter) throws DataAccessException {
-    synchronized (this.lockObject) {
-      try {
-        EntityManager entityManager = getEntityManager();
-        EntityTransaction entityTransaction = entityManager.getTransaction();
-        entityTransaction.begin();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(this.entityClass);
-        Root<T> root =
-            criteriaQuery.from(
-                this.entityClass); // root now virtually selects every object, and we can filter on
-        // this root object.
-
-        List<Predicate> predicates = Lists.newArrayList();
-        criteriaAdapter.applyCriteria(root, criteriaBuilder, predicates);
-
-        CriteriaQuery<T> query;
-        if (predicates.isEmpty()) {
-          query = criteriaQuery.select(root); // no need to filter, as there are no criteria.
-        } else {
-          query =
-              criteriaQuery
-                  .select(root)
-                  .where(predicates.toArray(Predicate[]::new)); // filter on the root object.
-        }
-
-        TypedQuery<T> result = entityManager.createQuery(query);
-        List<T> resultList = result.getResultList();
-        entityTransaction.commit();
-        return resultList; // execute the query and return the result list.
-      } catch (Exception e) {
-        throw new DataAccessException(e);
-      }
-    }
+    return this.find(criteriaAdapter, null);
+  }
+
+  /**
+   * Searches for objects fulfilling the given criteria, puts them into a list and returns them.
+   * The fetch plan is the name of an entity graph declared on the entity. Exactly the associations
+   * contained in the graph are loaded, joined into the same query, all others are left unloaded
+   * and must not be accessed.
+   *
+   * @param criteriaAdapter the criteria adapter used to supply a set of predicates
+   * @param fetchPlan the name of the entity graph to load or null to use the default fetch plan
+   * @return a list containing all objects fulfilling the criteria
+   * @throws DataAccessException if something goes wrong when accessing the data store
+   */
+  public List<T> find(CriteriaAdapter<T> criteriaAdapter, String fetchPlan)
+      throws DataAccessException {
+    return Dao.execute(
+        entityManager -> {
+          CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+          CriteriaQuery<T> criteriaQuery = criteriaBuilder.createQuery(this.entityClass);
+          Root<T> root =
+              criteriaQuery.from(
+                  this.entityClass); // root now virtually selects every object, and we can filter
+          // on this root object.
+
+          List<Predicate> predicates = Lists.newArrayList();
+          criteriaAdapter.applyCriteria(root, criteriaBuilder, predicates);
+
+          CriteriaQuery<T> query;
+          if (predicates.isEmpty()) {
+            query = criteriaQuery.select(root); // no need to filter, as there are no criteria.
+          } else {
+            query =
+                criteriaQuery
+                    .select(root)
+                    .where(predicates.toArray(Predicate[]::new)); // filter on the root object.
+          }
+
+          TypedQuery<T> result = entityManager.createQuery(query);
+          String entityGraph = fetchPlan != null ? fetchPlan : this.defaultFetchPlan;
+          if (entityGraph != null) {
+            result.setHint(FETCH_GRAPH_HINT, entityManager.getEntityGraph(entityGraph));
+          }
+          return result.getResultList(); // execute the query and return the result list.
+        });
   }
 
   /**
+   * Searches for objects fulfilling the given criteria asynchronously.
+   *
    * @see Dao#find(CriteriaAdapter)
+   * @param criteriaAdapter the criteria adapter used to supply a set of predicates
+   * @return a future completed with all objects fulfilling the criteria
+   */
+  public CompletableFuture<List<T>> findAsync(CriteriaAdapter<T> criteriaAdapter) {
+    return DataAccessExecutor.submit(() -> this.find(criteriaAdapter));
+  }
+
+  /**
+   * @see Dao#findAsync(CriteriaAdapter)
    * @see DataAccessCallback
    * @param criteriaAdapter the criteria adapter used to supply a set of predicates
    * @param dataAccessCallback the callback to handle the resulting data or eventual errors
    */
   public void findAsync(
       CriteriaAdapter<T> criteriaAdapter, DataAccessCallback<T> dataAccessCallback) {
-    new Thread(
-            () -> {
-              try {
-                List<T> foundEntities = this.find(criteriaAdapter);
-                dataAccessCallback.success(foundEntities);
-              } catch (DataAccessException e) {
-                dataAccessCallback.error(Lists.newArrayList(), e);
-                GroupManagerPlugin.getInstance()
-                    .log(Level.WARNING, "Failed to find entity asynchronously.", e);
-              }
-            })
-        .start();
+    adapt(
+        this.findAsync(criteriaAdapter),
+        Lists.newArrayList(),
+        dataAccessCallback,
+        "Failed to find entity asynchronously.");
   }
 
   /**
-   * Quickly returns all objects stored of the given type.
+   * Quickly returns all objects stored of the given type, loaded using the default fetch plan.
    *
    * @return all objects of the given type, in a list
    * @throws DataAccessException if something goes wrong when accessing the data
    */
   public List<T> findAll() throws DataAccessException {
-    synchronized (this.lockObject) {
-      try {
-        return this.find((rootObject, criteriaBuilder, output) -> {});
-      } catch (Exception e) {
-        throw new DataAccessException(e);
-      }
-    }
+    return this.find((rootObject, criteriaBuilder, output) -> {});
   }
 
   /**
+   * Quickly returns all objects stored of the given type, loaded using a fetch plan.
+   *
+   * @see Dao#find(CriteriaAdapter, String)
+   * @param fetchPlan the name of the entity graph to load or null to use the default fetch plan
+   * @return all objects of the given type, in a list
+   * @throws DataAccessException if something goes wrong when accessing the data
+   */
+  public List<T> findAll(String fetchPlan) throws DataAccessException {
+    return this.find((rootObject, criteriaBuilder, output) -> {}, fetchPlan);
+  }
+
+  /**
+   * Returns all objects stored of the given type asynchronously.
+   *
    * @see Dao#findAll()
+   * @return a future completed with all objects of the given type
+   */
+  public CompletableFuture<List<T>> findAllAsync() {
+    return DataAccessExecutor.submit(this::findAll);
+  }
+
+  /**
+   * @see Dao#findAllAsync()
    * @see DataAccessCallback
    * @param dataAccessCallback the callback to handle the resulting data or eventual errors
    */
   public void findAllAsync(DataAccessCallback<T> dataAccessCallback) {
-    new Thread(
-            () -> {
-              try {
-                dataAccessCallback.success(this.findAll());
-              } catch (DataAccessException e) {
-                dataAccessCallback.error(Lists.newArrayList(), e);
-              }
-            })
-        .start();
+    adapt(
+        this.findAllAsync(),
+        Lists.newArrayList(),
+        dataAccessCallback,
+        "Failed to find all entities asynchronously.");
+  }
+
+  /**
+   * Hands the outcome of an asynchronous operation to a callback.
+   *
+   * @param future the future of the operation
+   * @param involvedEntities the entities handed to the callback if the operation fails
+   * @param dataAccessCallback the callback to handle the resulting data or eventual errors
+   * @param errorMessage the message logged if the operation fails
+   * @param <T> the data type of the accessed entities
+   */
+  private static <T> void adapt(
+      CompletableFuture<List<T>> future,
+      List<T> involvedEntities,
+      DataAccessCallback<T> dataAccessCallback,
+      String errorMessage) {
+    future.whenComplete(
+        (entities, throwable) -> {
+          if (throwable == null) {
+            dataAccessCallback.success(entities);
+            return;
+          }
+          Throwable cause =
+              throwable instanceof CompletionException ? throwable.getCause() : throwable;
+          DataAccessException e =
+              cause instanceof DataAccessException
+                  ? (DataAccessException) cause
+                  : new DataAccessException(cause);
+          dataAccessCallback.error(involvedEntities, e);
+          GroupManagerPlugin.getInstance().log(Level.WARNING, errorMessage, e);
+        });
   }
 
-  private static final Map<Class<?>, Dao> DAO_CACHE_MAP =
-      Collections.synchronizedMap(Maps.newHashMap());
+  private static final Map<Class<?>, Dao<?>> DAO_CACHE_MAP = new ConcurrentHashMap<>();
 
   /**
    * Quickly instantiates a new DAO or retrieves a cached DAO for a given Entity type. Can be used
@@ -300,29 +725,16 @@ public class Dao<T> {
    * @return a new DAO used for data access and manipulation
    * @param <T> the entity type
    */
+  @SuppressWarnings("unchecked")
   public static <T> Dao<T> forType(Class<T> entityClass) {
-    synchronized (Dao.staticLockObject) {
-      Dao<T> dao = Dao.DAO_CACHE_MAP.get(entityClass);
-      if (dao == null) {
-        dao = new Dao<>(entityClass);
-        Dao.DAO_CACHE_MAP.put(entityClass, dao);
-      }
-      return dao;
-    }
+    return (Dao<T>) Dao.DAO_CACHE_MAP.computeIfAbsent(entityClass, Dao::new);
   }
 
-  /** Destroys all cached DAOs in order to invalidate caches. */
+  /**
+   * Forgets all cached DAOs. As DAOs do not keep any entities between operations, there is no
+   * persistence context to invalidate anymore.
+   */
   public static void destroyDaoCache() {
-    synchronized (Dao.staticLockObject) {
-      Dao.DAO_CACHE_MAP.values().forEach(Dao::destroyDao);
-      Dao.DAO_CACHE_MAP.clear();
-    }
-  }
-
-  /** Shuts down this DAO, clearing its cache. */
-  public void destroyDao() {
-    synchronized (this.lockObject) {
-      this.getEntityManager().close();
-    }
+    Dao.DAO_CACHE_MAP.clear();
   }
 }
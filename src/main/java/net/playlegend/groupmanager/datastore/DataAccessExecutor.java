@@ -0,0 +1,166 @@
+package net.playlegend.groupmanager.datastore;
+
+import net.playlegend.groupmanager.GroupManagerPlugin;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Runs the asynchronous operations of all {@link Dao}s. At most a fixed amount of operations run at
+ * the same time and a bounded amount of operations may wait for their turn. Once that queue is
+ * full, further operations are rejected right away instead of piling up, so callers notice that
+ * the data store cannot keep up.
+ */
+public class DataAccessExecutor {
+
+  private static final String THREAD_NAME_PREFIX = "GroupManager-Dao-";
+
+  private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  private static volatile DataAccessExecutor instance;
+
+  private final ExecutorService executorService;
+
+  private final Semaphore capacity;
+
+  private DataAccessExecutor(ExecutorService executorService, int capacity) {
+    this.executorService = executorService;
+    this.capacity = new Semaphore(capacity);
+  }
+
+  /**
+   * Starts the executor, replacing a previously started one.
+   *
+   * @param threads the maximum amount of operations running at the same time
+   * @param queueSize the maximum amount of operations waiting for their turn
+   * @param virtualThreads whether to run every operation on its own virtual thread, if supported
+   */
+  public static synchronized void start(int threads, int queueSize, boolean virtualThreads) {
+    shutdown();
+    threads = Math.max(1, threads);
+    ExecutorService executorService = virtualThreads ? createVirtualThreadExecutor() : null;
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(threads, createThreadFactory());
+    }
+    // virtual threads are not pooled, so the permits bound the amount of running operations too
+    instance = new DataAccessExecutor(executorService, threads + Math.max(0, queueSize));
+  }
+
+  /** Waits for all submitted operations to complete and stops the executor. */
+  public static synchronized void shutdown() {
+    DataAccessExecutor executor = instance;
+    if (executor == null) return;
+    instance = null;
+    executor.executorService.shutdown();
+    try {
+      if (!executor.executorService.awaitTermination(
+          SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+        GroupManagerPlugin.getInstance()
+            .log(Level.WARNING, "Data access operations did not complete in time.");
+        executor.executorService.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.executorService.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs an operation asynchronously.
+   *
+   * @param operation the operation to run
+   * @return a future completed with the result of the operation, or exceptionally with a {@link
+   *     DataAccessException} if the operation fails or has been rejected
+   * @param <R> the result type of the operation
+   */
+  public static <R> CompletableFuture<R> submit(AsyncOperation<R> operation) {
+    CompletableFuture<R> future = new CompletableFuture<>();
+    DataAccessExecutor executor = instance;
+    if (executor == null) {
+      future.completeExceptionally(
+          new DataAccessException("Data access executor is not running"));
+      return future;
+    }
+    if (!executor.capacity.tryAcquire()) {
+      future.completeExceptionally(
+          new DataAccessException(
+              "Too many pending data access operations",
+              new RejectedExecutionException("Data access queue is full")));
+      return future;
+    }
+    try {
+      executor.executorService.execute(
+          () -> {
+            try {
+              future.complete(operation.execute());
+            } catch (DataAccessException e) {
+              future.completeExceptionally(e);
+            } catch (RuntimeException e) {
+              future.completeExceptionally(new DataAccessException(e));
+            } finally {
+              executor.capacity.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      executor.capacity.release();
+      future.completeExceptionally(new DataAccessException("Data access executor is shut down", e));
+    }
+    return future;
+  }
+
+  private static ThreadFactory createThreadFactory() {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  /**
+   * Creates an executor running every operation on a new, named virtual thread. Virtual threads
+   * are only available on Java 21 and later, so they are looked up reflectively.
+   *
+   * @return the executor or null if virtual threads are not supported by the runtime
+   */
+  private static ExecutorService createVirtualThreadExecutor() {
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder =
+          builderClass
+              .getMethod("name", String.class, long.class)
+              .invoke(builder, THREAD_NAME_PREFIX, 1L);
+      ThreadFactory threadFactory =
+          (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      return (ExecutorService)
+          Executors.class
+              .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+              .invoke(null, threadFactory);
+    } catch (ReflectiveOperationException e) {
+      GroupManagerPlugin.getInstance()
+          .log(
+              Level.INFO,
+              "Virtual threads are not supported by this Java version, using platform threads.");
+      return null;
+    }
+  }
+
+  /**
+   * An operation run by the executor.
+   *
+   * @param <R> the result type of the operation
+   */
+  @FunctionalInterface
+  public interface AsyncOperation<R> {
+
+    R execute() throws DataAccessException;
+  }
+}
@@ -0,0 +1,162 @@
+package net.playlegend.groupmanager.datastore.cache;
+
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.Permission;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Keeps all groups and permissions in memory, indexed by id and by lowercased name. Groups and
+ * permissions only change through this plugin, so after being loaded once, the registry is kept up
+ * to date by the writes reported by {@link Dao} and never has to query the database again. As
+ * registered entities are shared between threads, they are made read-only when registered. Load a
+ * private copy to modify instead. Group names are unique ignoring case, a group whose name only
+ * differs in case from a registered group is reported and can only be looked up by its id.
+ */
+public class GroupRegistry {
+
+  private final Map<UUID, Group> groupsById = new ConcurrentHashMap<>();
+
+  private final Map<String, Group> groupsByName = new ConcurrentHashMap<>();
+
+  private final Map<String, Permission> permissionsByName = new ConcurrentHashMap<>();
+
+  /** Creates a new, empty registry and registers it for writes of groups and permissions. */
+  public GroupRegistry() {
+    Dao.addWriteListener(
+        Group.class,
+        new Dao.WriteListener<>() {
+          @Override
+          public void written(Group entity) {
+            GroupRegistry.this.register(entity);
+          }
+
+          @Override
+          public void deleted(Group entity) {
+            GroupRegistry.this.unregister(entity);
+          }
+        });
+    Dao.addWriteListener(
+        Permission.class,
+        new Dao.WriteListener<>() {
+          @Override
+          public void written(Permission entity) {
+            GroupRegistry.this.registerPermission(entity);
+          }
+
+          @Override
+          public void deleted(Permission entity) {
+            GroupRegistry.this.permissionsByName.remove(getKey(entity.getPermission()));
+          }
+        });
+  }
+
+  /**
+   * Replaces the contents of this registry with all groups and permissions in the database.
+   *
+   * @throws DataAccessException if there is a database error
+   */
+  public synchronized void load() throws DataAccessException {
+    List<Group> groups = Dao.forType(Group.class).findAll(Group.WITH_RULES);
+    List<Permission> permissions = Dao.forType(Permission.class).findAll();
+    this.groupsById.clear();
+    this.groupsByName.clear();
+    this.permissionsByName.clear();
+    groups.forEach(this::register);
+    permissions.forEach(this::registerPermission);
+  }
+
+  /**
+   * Returns a group by its id.
+   *
+   * @param id the id of the group
+   * @return the group or null if there is no group with the given id
+   */
+  public Group getGroup(UUID id) {
+    return this.groupsById.get(id);
+  }
+
+  /**
+   * Returns a group by its name, ignoring case.
+   *
+   * @param name the name of the group
+   * @return the group or null if there is no group with the given name
+   */
+  public Group getGroup(String name) {
+    return this.groupsByName.get(getKey(name));
+  }
+
+  /**
+   * Returns all groups.
+   *
+   * @return a new list containing all groups, in no particular order
+   */
+  public List<Group> getGroups() {
+    return new ArrayList<>(this.groupsById.values());
+  }
+
+  /**
+   * Returns a permission by its node, ignoring case.
+   *
+   * @param permission the permission node
+   * @return the permission or null if it is not known
+   */
+  public Permission getPermission(String permission) {
+    return this.permissionsByName.get(getKey(permission));
+  }
+
+  private synchronized void register(Group group) {
+    group.makeReadOnly();
+    group.getParents().forEach(Group::makeReadOnly);
+    Group previous = this.groupsById.put(group.getId(), group);
+    if (previous != null && !Objects.equals(previous.getName(), group.getName())) {
+      this.groupsByName.remove(getKey(previous.getName()), previous);
+    }
+    Group sameName = this.groupsByName.putIfAbsent(getKey(group.getName()), group);
+    if (sameName != null && !sameName.equals(group)) {
+      GroupManagerPlugin.getInstance()
+          .log(
+              Level.WARNING,
+              "Group \""
+                  + group.getName()
+                  + "\" only differs in case from group \""
+                  + sameName.getName()
+                  + "\" and cannot be looked up by name. Rename or delete one of them.");
+    } else {
+      this.groupsByName.put(getKey(group.getName()), group);
+    }
+    // permissions added to a group are persisted along with it
+    for (Permission permission : group.getPermissions()) {
+      permission.makeReadOnly();
+      this.permissionsByName.putIfAbsent(getKey(permission.getPermission()), permission);
+    }
+  }
+
+  private synchronized void unregister(Group group) {
+    Group previous = this.groupsById.remove(group.getId());
+    if (previous == null || !this.groupsByName.remove(getKey(previous.getName()), previous)) {
+      return;
+    }
+    // a group only differing in case may now be looked up by name
+    for (Group remaining : this.groupsById.values()) {
+      if (getKey(remaining.getName()).equals(getKey(previous.getName()))) {
+        this.groupsByName.put(getKey(remaining.getName()), remaining);
+        break;
+      }
+    }
+  }
+
+  private void registerPermission(Permission permission) {
+    permission.makeReadOnly();
+    this.permissionsByName.put(getKey(permission.getPermission()), permission);
+  }
+
+  private static String getKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
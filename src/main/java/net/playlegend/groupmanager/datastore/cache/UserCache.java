@@ -0,0 +1,283 @@
+package net.playlegend.groupmanager.datastore.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.datastore.wrapper.UserDao;
+import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Read-through cache of user data, indexed by UUID and by lowercased name. Users of online players
+ * are kept resident, all other users are evicted once the cache is full or after they have not
+ * been accessed for a while. Every user written using a {@link Dao} replaces its cached copy, and
+ * every group written refreshes the cached members of the group, so the cache never has to be
+ * invalidated by hand. As cached users are shared between threads, they are made read-only when
+ * cached, use {@link Dao#modify(Object, java.util.function.Consumer)} to change them.
+ */
+public class UserCache {
+
+  private final Map<UUID, User> residentUsers = new ConcurrentHashMap<>();
+
+  private final Set<UUID> residentIds = ConcurrentHashMap.newKeySet();
+
+  private final Cache<UUID, User> offlineUsers;
+
+  private final Map<String, UUID> uuidsByName = new ConcurrentHashMap<>();
+
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Creates a new cache and registers it for writes of users and groups.
+   *
+   * @param maximumSize the maximum amount of users of offline players to keep
+   * @param expirySeconds the time after which unused users of offline players are evicted
+   */
+  public UserCache(int maximumSize, int expirySeconds) {
+    this.offlineUsers =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterAccess(expirySeconds, TimeUnit.SECONDS)
+            .<UUID, User>removalListener(
+                notification -> {
+                  // replaced entries keep their name, entries moved to the residents are indexed
+                  if (notification.getCause() == RemovalCause.REPLACED) return;
+                  User user = notification.getValue();
+                  if (user != null && !this.residentIds.contains(user.getUuid())) {
+                    this.unindexName(user);
+                  }
+                })
+            .build();
+    Dao.addWriteListener(
+        User.class,
+        new Dao.WriteListener<>() {
+          @Override
+          public void written(User entity) {
+            UserCache.this.generation.incrementAndGet();
+            UserCache.this.cache(entity);
+          }
+
+          @Override
+          public void deleted(User entity) {
+            UserCache.this.invalidate(entity.getUuid());
+          }
+        });
+    // cached users hold a copy of their groups, which would show outdated prefixes otherwise
+    Dao.addWriteListener(
+        Group.class,
+        new Dao.WriteListener<>() {
+          @Override
+          public void written(Group entity) {
+            UserCache.this.refreshMembers(entity.getId());
+          }
+
+          @Override
+          public void deleted(Group entity) {
+            UserCache.this.refreshMembers(entity.getId());
+          }
+        });
+  }
+
+  /**
+   * Returns the user data associated with a UUID, loading it from the database if not cached.
+   *
+   * @param uuid the UUID of the user
+   * @return the user data or null if not found
+   * @throws DataAccessException if there is an exception when communicating with the database
+   */
+  public User getUser(UUID uuid) throws DataAccessException {
+    User user = this.getCachedUser(uuid);
+    if (user != null) return user;
+    long loadGeneration = this.generation.get();
+    user = UserDao.loadUser(uuid);
+    if (user != null) this.cacheLoaded(user, loadGeneration);
+    return user;
+  }
+
+  /**
+   * Returns the user data associated with a name, loading it from the database if not cached.
+   * Names are compared case-insensitively.
+   *
+   * @param name the name of the user
+   * @return the user data or null if not found
+   * @throws DataAccessException if there is an exception when communicating with the database
+   */
+  public User getUser(String name) throws DataAccessException {
+    UUID uuid = this.uuidsByName.get(name.toLowerCase(Locale.ROOT));
+    if (uuid != null) {
+      User user = this.getCachedUser(uuid);
+      if (user != null && name.equalsIgnoreCase(user.getName())) return user;
+    }
+    long loadGeneration = this.generation.get();
+    User user = UserDao.loadUser(name);
+    if (user != null) this.cacheLoaded(user, loadGeneration);
+    return user;
+  }
+
+  /**
+   * Returns the user data of several users. Users which are not cached are loaded using a single
+   * query.
+   *
+   * @param uuids the UUIDs of the users
+   * @return the user data found, in no particular order
+   * @throws DataAccessException if there is an exception when communicating with the database
+   */
+  public List<User> getUsers(Collection<UUID> uuids) throws DataAccessException {
+    List<User> users = new ArrayList<>();
+    List<UUID> missingUuids = new ArrayList<>();
+    for (UUID uuid : uuids) {
+      User user = this.getCachedUser(uuid);
+      if (user != null) {
+        users.add(user);
+      } else {
+        missingUuids.add(uuid);
+      }
+    }
+    if (missingUuids.isEmpty()) return users;
+    long loadGeneration = this.generation.get();
+    for (User user : UserDao.loadUsers(missingUuids)) {
+      this.cacheLoaded(user, loadGeneration);
+      users.add(user);
+    }
+    return users;
+  }
+
+  /**
+   * Keeps the user data of a player resident until {@link #release(UUID)} is called. Called when
+   * the player joins.
+   *
+   * @param uuid the UUID of the player
+   */
+  public synchronized void retain(UUID uuid) {
+    this.residentIds.add(uuid);
+    User user = this.offlineUsers.getIfPresent(uuid);
+    if (user != null) {
+      this.residentUsers.put(uuid, user);
+      this.offlineUsers.invalidate(uuid);
+    }
+  }
+
+  /**
+   * Allows the user data of a player to be evicted again. Called when the player quits.
+   *
+   * @param uuid the UUID of the player
+   */
+  public synchronized void release(UUID uuid) {
+    this.residentIds.remove(uuid);
+    User user = this.residentUsers.remove(uuid);
+    if (user != null) this.offlineUsers.put(uuid, user);
+  }
+
+  /**
+   * Forgets the user data associated with a UUID, so that it is loaded again on the next access.
+   *
+   * @param uuid the UUID of the user
+   */
+  public synchronized void invalidate(UUID uuid) {
+    this.generation.incrementAndGet();
+    User user = this.residentUsers.remove(uuid);
+    if (user != null) this.unindexName(user);
+    this.offlineUsers.invalidate(uuid);
+  }
+
+  /**
+   * Forgets all cached user data. Players stay resident, but their user data is loaded again on
+   * the next access.
+   */
+  public synchronized void invalidateAll() {
+    this.generation.incrementAndGet();
+    this.residentUsers.clear();
+    this.offlineUsers.invalidateAll();
+    this.uuidsByName.clear();
+  }
+
+  /**
+   * Refreshes the cached users whose primary or secondary group is the given group, as they hold a
+   * copy of it. The affected users of online players are reloaded right away using a single query,
+   * all other affected users are forgotten. Users of other groups are kept.
+   *
+   * @param groupId the id of the group which has been written or deleted
+   */
+  public void refreshMembers(UUID groupId) {
+    List<UUID> residentMembers = new ArrayList<>();
+    long loadGeneration;
+    synchronized (this) {
+      loadGeneration = this.generation.incrementAndGet();
+      for (User user : this.residentUsers.values()) {
+        if (isMember(user, groupId)) residentMembers.add(user.getUuid());
+      }
+      for (UUID uuid : residentMembers) {
+        this.unindexName(this.residentUsers.remove(uuid));
+      }
+      this.offlineUsers.asMap().values().removeIf(user -> isMember(user, groupId));
+    }
+    if (residentMembers.isEmpty()) return;
+    try {
+      for (User user : UserDao.loadUsers(residentMembers)) {
+        this.cacheLoaded(user, loadGeneration);
+      }
+    } catch (DataAccessException e) {
+      // the members have been forgotten already, so they are loaded again on the next access
+      GroupManagerPlugin.getInstance()
+          .log(Level.WARNING, "Failed to reload the members of a changed group.", e);
+    }
+  }
+
+  private static boolean isMember(User user, UUID groupId) {
+    if (user.getGroup() != null && groupId.equals(user.getGroup().getId())) return true;
+    if (user.getSecondaryGroups() == null) return false;
+    for (Group group : user.getSecondaryGroups()) {
+      if (groupId.equals(group.getId())) return true;
+    }
+    return false;
+  }
+
+  private User getCachedUser(UUID uuid) {
+    User user = this.residentUsers.get(uuid);
+    return user != null ? user : this.offlineUsers.getIfPresent(uuid);
+  }
+
+  /**
+   * Caches user data loaded from the database, unless a user has been written or invalidated
+   * since loading started, as the loaded data might be outdated then.
+   *
+   * @param user the loaded user data
+   * @param loadGeneration the generation of the cache when loading started
+   */
+  private synchronized void cacheLoaded(User user, long loadGeneration) {
+    if (this.generation.get() == loadGeneration) this.cache(user);
+  }
+
+  private synchronized void cache(User user) {
+    user.makeReadOnly();
+    // the groups loaded along with the user are shared just the same
+    if (user.getGroup() != null) user.getGroup().makeReadOnly();
+    if (user.getSecondaryGroups() != null) user.getSecondaryGroups().forEach(Group::makeReadOnly);
+    User previous = this.getCachedUser(user.getUuid());
+    if (previous != null && !Objects.equals(previous.getName(), user.getName())) {
+      this.unindexName(previous);
+    }
+    if (this.residentIds.contains(user.getUuid())) {
+      this.residentUsers.put(user.getUuid(), user);
+    } else {
+      this.offlineUsers.put(user.getUuid(), user);
+    }
+    if (user.getName() != null) {
+      this.uuidsByName.put(user.getName().toLowerCase(Locale.ROOT), user.getUuid());
+    }
+  }
+
+  private void unindexName(User user) {
+    if (user.getName() == null) return;
+    this.uuidsByName.remove(user.getName().toLowerCase(Locale.ROOT), user.getUuid());
+  }
+}
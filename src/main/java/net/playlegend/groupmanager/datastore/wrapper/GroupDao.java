@@ -1,64 +1,156 @@
 package net.playlegend.groupmanager.datastore.wrapper;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.datastore.cache.GroupRegistry;
 import net.playlegend.groupmanager.model.Group;
 import net.playlegend.groupmanager.model.Group_;
+import net.playlegend.groupmanager.model.User;
+import net.playlegend.groupmanager.model.User_;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public class GroupDao {
 
   /**
-   * Returns the group object using the specified group name.
+   * Returns the group object using the specified group name, ignoring case. Served from the {@link
+   * GroupRegistry}, so the returned group is read-only. Use {@link #loadGroup(String)} to obtain a
+   * group to modify.
    *
    * @param groupName the group name to look for
    * @return the associated group object or null if not found
    * @throws DataAccessException if there is a database error
    */
   public static Group getGroup(String groupName) throws DataAccessException {
+    return GroupManagerPlugin.getInstance().getGroupRegistry().getGroup(groupName);
+  }
+
+  /**
+   * Returns the group object with the specified id. Served from the {@link GroupRegistry}, so the
+   * returned group is read-only.
+   *
+   * @param id the group id to look for
+   * @return the associated group object or null if not found
+   */
+  public static Group getGroup(UUID id) {
+    return GroupManagerPlugin.getInstance().getGroupRegistry().getGroup(id);
+  }
+
+  /**
+   * Loads a private copy of a group from the database, which may be modified and updated.
+   *
+   * @param groupName the group name to look for
+   * @return the associated group object or null if not found
+   * @throws DataAccessException if there is a database error
+   */
+  public static Group loadGroup(String groupName) throws DataAccessException {
+    Group group = GroupDao.getGroup(groupName);
+    if (group == null) return null;
     List<Group> matchingGroups =
         Dao.forType(Group.class)
             .find(
                 (rootObject, criteriaBuilder, output) ->
-                    output.add(criteriaBuilder.equal(rootObject.get(Group_.NAME), groupName)));
+                    output.add(criteriaBuilder.equal(rootObject.get(Group_.ID), group.getId())),
+                Group.WITH_RULES);
     if (matchingGroups.isEmpty()) return null;
     return matchingGroups.get(0);
   }
 
   /**
-   * Returns all groups from the database.
+   * Returns all groups. Served from the {@link GroupRegistry}, so the returned groups are
+   * read-only.
    *
-   * @return a list of all groups found in the database or null if none are found
+   * @return a list of all groups or null if there are none
    * @throws DataAccessException if there is a database error
    */
   public static List<Group> getAllGroups() throws DataAccessException {
-    List<Group> matchingGroups =
-        Dao.forType(Group.class).find((rootObject, criteriaBuilder, output) -> {});
+    List<Group> matchingGroups = GroupManagerPlugin.getInstance().getGroupRegistry().getGroups();
     if (matchingGroups.isEmpty()) return null;
     return matchingGroups;
   }
 
   /**
-   * Deletes a group without touching associated users. Note: Group deletion is a possibly slow
-   * process for groups with many members because of a time complexity of O(n + m) where n is the
-   * amount of players in the group and m is the amount of permissions the group has.
+   * Deletes a group. Members are moved to the default group, the group is removed from the
+   * secondary groups of all users and from the parents of all groups. Everything is applied in a
+   * single transaction, holding the write lock of the group, and is retried if one of the changed
+   * groups is written concurrently. Members are moved using bulk statements, so no user is loaded,
+   * regardless of the size of the group.
    *
    * @param group the group to delete
    * @throws DataAccessException if there is a database error
    */
   public static void deleteGroup(Group group) throws DataAccessException {
-    group
-        .getUsers()
-        .forEach(
-            u -> {
-              u.setGroup(GroupManagerPlugin.getInstance().getDefaultGroup());
-              u.setGroupValidUntil(-1);
-            });
-    group.getPermissions().forEach(p -> p.getGroups().remove(group));
-    group.getPermissions().clear();
-    group.getUsers().clear();
-    Dao.forType(Group.class).delete(group);
+    Group defaultGroup = GroupManagerPlugin.getInstance().getDefaultGroup();
+    Dao<Group> groupDao = Dao.forType(Group.class);
+    groupDao.delete(
+        group.getId(),
+        (entityManager, managedGroup) -> {
+          CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+          CriteriaUpdate<User> moveMembers = criteriaBuilder.createCriteriaUpdate(User.class);
+          Root<User> member = moveMembers.from(User.class);
+          Path<Long> version = member.get(User_.VERSION);
+          moveMembers
+              .set(member.<Group>get(User_.GROUP), defaultGroup)
+              .set(member.<Long>get(User_.GROUP_VALID_UNTIL), -1L)
+              // bulk updates bypass optimistic locking, so the version is increased by hand
+              .set(version, criteriaBuilder.sum(version, 1L))
+              .where(criteriaBuilder.equal(member.get(User_.GROUP), managedGroup));
+          entityManager.createQuery(moveMembers).executeUpdate();
+          // the secondary groups are a plain join table, which can only be cleaned up natively
+          entityManager
+              .createNativeQuery("DELETE FROM users_secondary_groups WHERE groupId = :groupId")
+              .setParameter("groupId", managedGroup.getId())
+              .executeUpdate();
+          CriteriaQuery<Group> findChildren = criteriaBuilder.createQuery(Group.class);
+          Root<Group> child = findChildren.from(Group.class);
+          findChildren
+              .select(child)
+              .where(criteriaBuilder.equal(child.join(Group_.PARENTS), managedGroup));
+          List<Group> children =
+              entityManager
+                  .createQuery(findChildren)
+                  .setHint(Dao.FETCH_GRAPH_HINT, entityManager.getEntityGraph(Group.WITH_RULES))
+                  .getResultList();
+          for (Group managedChild : children) {
+            managedChild.getParents().remove(managedGroup);
+            // reported once the transaction has been committed, like the deletion itself
+            groupDao.notifyWritten(managedChild);
+          }
+          // permissions are cascaded, but may still be used by other groups
+          managedGroup.getPermissions().clear();
+        });
+  }
+
+  /**
+   * Checks whether a group inherits from another group, either directly or through one of its
+   * parents.
+   *
+   * @param group the group whose ancestors to look through
+   * @param ancestor the possible ancestor
+   * @return true if the group inherits from the ancestor, false otherwise
+   */
+  public static boolean inheritsFrom(Group group, Group ancestor) {
+    Set<Group> visited = new HashSet<>();
+    Deque<Group> queue = new ArrayDeque<>(group.getParents());
+    while (!queue.isEmpty()) {
+      Group current = queue.poll();
+      if (current.equals(ancestor)) return true;
+      // parents referenced by other groups might be outdated copies
+      Group registered = GroupDao.getGroup(current.getId());
+      if (registered != null) current = registered;
+      if (visited.add(current)) queue.addAll(current.getParents());
+    }
+    return false;
   }
 }
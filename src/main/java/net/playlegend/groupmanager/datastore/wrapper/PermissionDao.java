@@ -1,30 +1,23 @@
 package net.playlegend.groupmanager.datastore.wrapper;
 
+import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.datastore.cache.GroupRegistry;
 import net.playlegend.groupmanager.model.Permission;
-import net.playlegend.groupmanager.model.Permission_;
-
-import java.util.List;
 
 public class PermissionDao {
 
   /**
-   * Returns the permission object of a given permission string.
+   * Returns the permission object of a given permission string, ignoring case. Served from the
+   * {@link GroupRegistry}.
    *
    * @param permission the permission string to look for
    * @return the permission object associated with the permission string or null if not found
    * @throws DataAccessException if there is a database error
    */
   public static Permission getPermission(String permission) throws DataAccessException {
-    List<Permission> result =
-        Dao.forType(Permission.class)
-            .find(
-                (rootObject, criteriaBuilder, output) ->
-                    output.add(
-                        criteriaBuilder.equal(rootObject.get(Permission_.PERMISSION), permission)));
-    if (result.isEmpty()) return null;
-    return result.get(0);
+    return GroupManagerPlugin.getInstance().getGroupRegistry().getPermission(permission);
   }
 
   /**
@@ -9,14 +9,15 @@ import java.util.List;
 public class RankSignDao {
 
   /**
-   * Collects all known rank signs from the database.
+   * Collects all known rank signs from the database, along with their owners and the owners'
+   * primary group, using a single query.
    *
    * @return a list containing all rank signs or null if none are found
    * @throws DataAccessException if there is a communication error
    */
   public static List<RankSign> getAllSigns() throws DataAccessException {
     List<RankSign> matchingSigns =
-        Dao.forType(RankSign.class).find((rootObject, criteriaBuilder, output) -> {});
+        Dao.forType(RankSign.class).findAll(RankSign.WITH_OWNER);
     if (matchingSigns.isEmpty()) return null;
     return matchingSigns;
   }
@@ -1,40 +1,45 @@
 package net.playlegend.groupmanager.datastore.wrapper;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Root;
+import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.datastore.cache.UserCache;
+import net.playlegend.groupmanager.model.Group;
 import net.playlegend.groupmanager.model.User;
 import net.playlegend.groupmanager.model.User_;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Entity;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 public class UserDao {
 
   /**
-   * Searches for user data using a given UUID.
+   * Searches for user data using a given UUID. Served from the {@link UserCache} if possible, so
+   * the returned user is read-only. Use {@link Dao#modify(Object, java.util.function.Consumer)} to
+   * change it.
    *
    * @param uuid the UUID of the searched user data, same as the associated players' UUID
    * @return the corresponding user data or null if not found
    * @throws DataAccessException if there is an exception when communicating with the database.
    */
   public static User getUser(UUID uuid) throws DataAccessException {
-    List<User> playerUserData =
-        Dao.forType(User.class)
-            .find(
-                (rootObject, criteriaBuilder, output) ->
-                    output.add(criteriaBuilder.equal(rootObject.get(User_.UUID), uuid)));
-    if (playerUserData.isEmpty()) return null;
-    return playerUserData.get(0);
+    return GroupManagerPlugin.getInstance().getUserCache().getUser(uuid);
   }
 
   /**
-   * Collects all online players' user data using one query. Generally recommended instead of
-   * calling {@code getUser(onlinePlayer.getUniqueId())} over and over again.
+   * Collects all online players' user data. Users not cached yet are loaded using one query.
+   * Generally recommended instead of calling {@code getUser(onlinePlayer.getUniqueId())} over and
+   * over again.
    *
    * @return the corresponding user data or null if not found
    * @throws DataAccessException if there is an exception when communicating with the database.
@@ -42,20 +47,16 @@ public class UserDao {
   public static List<User> getOnlineUsers() throws DataAccessException {
     List<UUID> onlineUuids =
         Bukkit.getOnlinePlayers().stream().map(Entity::getUniqueId).collect(Collectors.toList());
-    List<User> playerUserData =
-        Dao.forType(User.class)
-            .find(
-                (rootObject, criteriaBuilder, output) -> {
-                  Expression<UUID> uuidExp = rootObject.get(User_.UUID);
-                  output.add(uuidExp.in(onlineUuids));
-                });
     if (onlineUuids.isEmpty()) return new ArrayList<>();
+    List<User> playerUserData =
+        GroupManagerPlugin.getInstance().getUserCache().getUsers(onlineUuids);
     if (playerUserData.isEmpty()) return null;
     return playerUserData;
   }
 
   /**
-   * Searches for user data using a given name.
+   * Searches for user data using a given name, ignoring case. Served from the {@link UserCache} if
+   * possible, so the returned user is read-only.
    *
    * @param name the name associated with the searched user data, usually the same as the associated
    *     players' name if he has rejoined after renaming.
@@ -63,12 +64,84 @@ public class UserDao {
    * @throws DataAccessException if there is an exception when communicating with the database.
    */
   public static User getUser(String name) throws DataAccessException {
+    return GroupManagerPlugin.getInstance().getUserCache().getUser(name);
+  }
+
+  /**
+   * Loads user data using a given UUID from the database, bypassing the cache. Only the groups of
+   * the user are loaded along with it.
+   *
+   * @param uuid the UUID of the searched user data
+   * @return the corresponding user data or null if not found
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static User loadUser(UUID uuid) throws DataAccessException {
+    List<User> playerUserData =
+        Dao.forType(User.class)
+            .find(
+                (rootObject, criteriaBuilder, output) ->
+                    output.add(criteriaBuilder.equal(rootObject.get(User_.UUID), uuid)),
+                User.WITH_GROUPS);
+    if (playerUserData.isEmpty()) return null;
+    return playerUserData.get(0);
+  }
+
+  /**
+   * Loads the user data of several users from the database using one query, bypassing the cache.
+   *
+   * @param uuids the UUIDs of the searched user data
+   * @return the user data found, empty if there is none
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static List<User> loadUsers(Collection<UUID> uuids) throws DataAccessException {
+    return Dao.forType(User.class)
+        .find(
+            (rootObject, criteriaBuilder, output) -> {
+              Expression<UUID> uuidExp = rootObject.get(User_.UUID);
+              output.add(uuidExp.in(uuids));
+            },
+            User.WITH_GROUPS);
+  }
+
+  /**
+   * Loads user data using a given name from the database, bypassing the cache. Names are compared
+   * case-insensitively.
+   *
+   * @param name the name associated with the searched user data
+   * @return the corresponding user data or null if not found
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static User loadUser(String name) throws DataAccessException {
     List<User> playerUserData =
         Dao.forType(User.class)
             .find(
                 (rootObject, criteriaBuilder, output) ->
-                    output.add(criteriaBuilder.equal(rootObject.get(User_.NAME), name)));
+                    output.add(
+                        criteriaBuilder.equal(
+                            criteriaBuilder.lower(rootObject.get(User_.NAME)),
+                            name.toLowerCase(Locale.ROOT))),
+                User.WITH_GROUPS);
     if (playerUserData.isEmpty()) return null;
     return playerUserData.get(0);
   }
+
+  /**
+   * Counts the users having a group as their primary group, without loading them.
+   *
+   * @param group the group to count the members of
+   * @return the amount of users in the group
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static long countUsersInGroup(Group group) throws DataAccessException {
+    return Dao.query(
+        entityManager -> {
+          CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+          CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+          Root<User> root = query.from(User.class);
+          query
+              .select(criteriaBuilder.count(root))
+              .where(criteriaBuilder.equal(root.get(User_.GROUP), group));
+          return entityManager.createQuery(query).getSingleResult();
+        });
+  }
 }
@@ -0,0 +1,92 @@
+package net.playlegend.groupmanager.datastore.wrapper;
+
+import jakarta.persistence.criteria.Expression;
+import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.DataAccessException;
+import net.playlegend.groupmanager.model.User;
+import net.playlegend.groupmanager.model.UserPermission;
+import net.playlegend.groupmanager.model.UserPermission_;
+import net.playlegend.groupmanager.model.User_;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+public class UserPermissionDao {
+
+  /**
+   * Collects all permission overrides of a single user.
+   *
+   * @param uuid the UUID of the user
+   * @return a list containing all permission overrides of the user, may be empty
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static List<UserPermission> getUserPermissions(UUID uuid) throws DataAccessException {
+    return Dao.forType(UserPermission.class)
+        .find(
+            (rootObject, criteriaBuilder, output) ->
+                output.add(
+                    criteriaBuilder.equal(
+                        rootObject.get(UserPermission_.USER).get(User_.UUID), uuid)));
+  }
+
+  /**
+   * Collects the permission overrides of all online players using one query.
+   *
+   * @return a list containing the permission overrides of all online players, may be empty
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static List<UserPermission> getOnlineUserPermissions() throws DataAccessException {
+    List<UUID> onlineUuids =
+        Bukkit.getOnlinePlayers().stream().map(Entity::getUniqueId).collect(Collectors.toList());
+    if (onlineUuids.isEmpty()) return new ArrayList<>();
+    return Dao.forType(UserPermission.class)
+        .find(
+            (rootObject, criteriaBuilder, output) ->
+                output.add(rootObject.get(UserPermission_.USER).get(User_.UUID).in(onlineUuids)));
+  }
+
+  /**
+   * Searches for the override of a single permission of a user.
+   *
+   * @param user the user
+   * @param permission the overridden permission node
+   * @return the corresponding override or null if the permission is not overridden
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static UserPermission getUserPermission(User user, String permission)
+      throws DataAccessException {
+    List<UserPermission> matchingPermissions =
+        Dao.forType(UserPermission.class)
+            .find(
+                (rootObject, criteriaBuilder, output) -> {
+                  output.add(criteriaBuilder.equal(rootObject.get(UserPermission_.USER), user));
+                  output.add(
+                      criteriaBuilder.equal(
+                          criteriaBuilder.lower(rootObject.get(UserPermission_.PERMISSION)),
+                          permission.toLowerCase()));
+                });
+    if (matchingPermissions.isEmpty()) return null;
+    return matchingPermissions.get(0);
+  }
+
+  /**
+   * Collects all permission overrides whose expiry date has passed.
+   *
+   * @return a list containing all expired permission overrides, may be empty
+   * @throws DataAccessException if there is an exception when communicating with the database.
+   */
+  public static List<UserPermission> getExpiredUserPermissions() throws DataAccessException {
+    long now = System.currentTimeMillis();
+    return Dao.forType(UserPermission.class)
+        .find(
+            (rootObject, criteriaBuilder, output) -> {
+              Expression<Long> validUntil = rootObject.get(UserPermission_.VALID_UNTIL);
+              output.add(criteriaBuilder.greaterThan(validUntil, 0L));
+              output.add(criteriaBuilder.lessThan(validUntil, now));
+            });
+  }
+}
@@ -3,13 +3,16 @@ package net.playlegend.groupmanager.listener;
 import com.google.common.collect.Maps;
 import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.DataAccessException;
 import net.playlegend.groupmanager.datastore.wrapper.UserDao;
 import net.playlegend.groupmanager.model.User;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.util.HashMap;
@@ -17,19 +20,37 @@ import java.util.logging.Level;
 
 public class PlayerConnectionListener implements Listener {
 
-  @EventHandler
-  public void handlePlayerJoinEvent(PlayerJoinEvent playerJoinEvent) {
-    playerJoinEvent.setJoinMessage(null);
+  @EventHandler(priority = EventPriority.LOWEST)
+  public void handlePlayerLoginEvent(PlayerLoginEvent playerLoginEvent) {
+    // inject as early as possible, so that no permission check sees the default permissible
     try {
       GroupManagerPlugin.getInstance()
           .getPermissibleManager()
-          .injectPermissible(playerJoinEvent.getPlayer());
+          .injectPermissible(playerLoginEvent.getPlayer());
     } catch (Exception e) {
       GroupManagerPlugin.getInstance()
           .log(
               Level.WARNING,
-              "Failed to inject permissible for player " + playerJoinEvent.getPlayer().getName());
+              "Failed to inject permissible for player " + playerLoginEvent.getPlayer().getName(),
+              e);
+    }
+  }
+
+  @EventHandler(priority = EventPriority.MONITOR)
+  public void handlePlayerLoginResult(PlayerLoginEvent playerLoginEvent) {
+    if (playerLoginEvent.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+      GroupManagerPlugin.getInstance()
+          .getPermissibleManager()
+          .removePermissible(playerLoginEvent.getPlayer());
     }
+  }
+
+  @EventHandler
+  public void handlePlayerJoinEvent(PlayerJoinEvent playerJoinEvent) {
+    playerJoinEvent.setJoinMessage(null);
+    GroupManagerPlugin.getInstance()
+        .getUserCache()
+        .retain(playerJoinEvent.getPlayer().getUniqueId());
     Bukkit.getScheduler()
         .runTaskAsynchronously(
             GroupManagerPlugin.getInstance(),
@@ -47,7 +68,12 @@ public class PlayerConnectionListener implements Listener {
                           .getMessage(locale, "gm.join", replacements));
                 }
                 GroupManagerPlugin.getInstance().getScoreboardManager().updateScoreboards();
-                GroupManagerPlugin.getInstance().getPermissibleManager().cacheUserData(user);
+                try {
+                  GroupManagerPlugin.getInstance().getPermissibleManager().cacheUserData(user);
+                } catch (DataAccessException e) {
+                  GroupManagerPlugin.getInstance()
+                      .log(Level.WARNING, "Failed to cache permissions of " + user.getName(), e);
+                }
               }
             });
     GroupManagerPlugin.getInstance().getScoreboardManager().updateScoreboards();
@@ -56,6 +82,12 @@ public class PlayerConnectionListener implements Listener {
   @EventHandler
   public void handlePlayerQuitEvent(PlayerQuitEvent playerQuitEvent) {
     playerQuitEvent.setQuitMessage(null);
+    GroupManagerPlugin.getInstance()
+        .getPermissibleManager()
+        .removePermissible(playerQuitEvent.getPlayer());
+    GroupManagerPlugin.getInstance()
+        .getUserCache()
+        .release(playerQuitEvent.getPlayer().getUniqueId());
     Bukkit.getScheduler()
         .runTaskAsynchronously(
             GroupManagerPlugin.getInstance(),
@@ -86,11 +118,16 @@ public class PlayerConnectionListener implements Listener {
     try {
       User userData = UserDao.getUser(player.getUniqueId());
       if (userData != null) {
-        userData.setName(player.getName());
-        if (userData.getGroup() == null) {
-          userData.setGroup(GroupManagerPlugin.getInstance().getDefaultGroup());
-        }
-        Dao.forType(User.class).update(userData);
+        userData =
+            Dao.forType(User.class)
+                .modify(
+                    userData.getUuid(),
+                    currentUser -> {
+                      currentUser.setName(player.getName());
+                      if (currentUser.getGroup() == null) {
+                        currentUser.setGroup(GroupManagerPlugin.getInstance().getDefaultGroup());
+                      }
+                    });
       } else {
         userData = new User();
         userData.setUuid(player.getUniqueId());
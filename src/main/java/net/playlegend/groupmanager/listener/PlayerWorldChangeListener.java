@@ -0,0 +1,17 @@
+package net.playlegend.groupmanager.listener;
+
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+
+public class PlayerWorldChangeListener implements Listener {
+
+  @EventHandler(priority = EventPriority.LOWEST)
+  public void handlePlayerChangedWorldEvent(PlayerChangedWorldEvent playerChangedWorldEvent) {
+    GroupManagerPlugin.getInstance()
+        .getPermissibleManager()
+        .changeWorld(playerChangedWorldEvent.getPlayer());
+  }
+}
@@ -2,9 +2,9 @@ package net.playlegend.groupmanager.model;
 
 import jakarta.persistence.*;
 import lombok.Getter;
-import lombok.Setter;
 import org.hibernate.annotations.UuidGenerator;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -12,8 +12,22 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "groups")
+@NamedEntityGraph(
+    name = Group.WITH_RULES,
+    attributeNodes = {
+      @NamedAttributeNode("permissions"),
+      @NamedAttributeNode("worldPermissions"),
+      @NamedAttributeNode("parents")
+    })
 public class Group {
 
+  /**
+   * Fetch plan loading everything needed to compile the permissions of a group: its permissions,
+   * its world scoped permissions and its direct parents, but none of the associations of the
+   * parents. Used by every data access loading groups, unless another fetch plan is given.
+   */
+  public static final String WITH_RULES = "Group.withRules";
+
   @Id
   @Column(name = "id", nullable = false)
   @Getter
@@ -21,35 +35,126 @@ public class Group {
   @UuidGenerator
   private UUID id;
 
+  @Version
+  @Column(name = "version")
+  @Getter
+  private long version;
+
   @Column(name = "name", nullable = false, unique = true)
   @Getter
-  @Setter
   private String name;
 
   @Column(name = "priority")
   @Getter
-  @Setter
   private Integer priority = 99;
 
   @Column(name = "prefix")
   @Getter
-  @Setter
   private String prefix = "";
 
-  @OneToMany(mappedBy = "group", fetch = FetchType.EAGER)
-  @Getter
-  @Setter
+  /**
+   * The members of this group. Not loaded along with the group, as there may be a lot of them. Use
+   * the aggregate queries of the UserDao instead.
+   */
+  @OneToMany(mappedBy = "group", fetch = FetchType.LAZY)
   private Set<User> users = new HashSet<>();
 
-  @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+  @ManyToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
   @JoinTable(
       name = "groups_permissions",
       inverseJoinColumns = {@JoinColumn(name = "permissionId")},
       joinColumns = {@JoinColumn(name = "groupId")})
-  @Getter
-  @Setter
   private Set<Permission> permissions = new HashSet<>();
 
+  @OneToMany(
+      mappedBy = "group",
+      cascade = CascadeType.ALL,
+      orphanRemoval = true,
+      fetch = FetchType.LAZY)
+  private Set<GroupWorldPermission> worldPermissions = new HashSet<>();
+
+  @ManyToMany(fetch = FetchType.LAZY)
+  @JoinTable(
+      name = "groups_parents",
+      inverseJoinColumns = {@JoinColumn(name = "parentId")},
+      joinColumns = {@JoinColumn(name = "groupId")})
+  private Set<Group> parents = new HashSet<>();
+
+  /** Whether this group is shared by a cache, see {@link #makeReadOnly()}. */
+  @Transient private volatile boolean readOnly;
+
+  /**
+   * Marks this group as shared between threads by the group registry or the user cache.
+   * Afterwards, every setter throws and the collections can no longer be modified. Use {@link
+   * net.playlegend.groupmanager.datastore.Dao#modify(Object, java.util.function.Consumer)} or a
+   * private copy loaded from the database to change a shared group.
+   */
+  public void makeReadOnly() {
+    this.readOnly = true;
+  }
+
+  public void setName(String name) {
+    this.checkWritable();
+    this.name = name;
+  }
+
+  public void setPriority(Integer priority) {
+    this.checkWritable();
+    this.priority = priority;
+  }
+
+  public void setPrefix(String prefix) {
+    this.checkWritable();
+    this.prefix = prefix;
+  }
+
+  public Set<User> getUsers() {
+    return this.view(this.users);
+  }
+
+  public void setUsers(Set<User> users) {
+    this.checkWritable();
+    this.users = users;
+  }
+
+  public Set<Permission> getPermissions() {
+    return this.view(this.permissions);
+  }
+
+  public void setPermissions(Set<Permission> permissions) {
+    this.checkWritable();
+    this.permissions = permissions;
+  }
+
+  public Set<GroupWorldPermission> getWorldPermissions() {
+    return this.view(this.worldPermissions);
+  }
+
+  public void setWorldPermissions(Set<GroupWorldPermission> worldPermissions) {
+    this.checkWritable();
+    this.worldPermissions = worldPermissions;
+  }
+
+  public Set<Group> getParents() {
+    return this.view(this.parents);
+  }
+
+  public void setParents(Set<Group> parents) {
+    this.checkWritable();
+    this.parents = parents;
+  }
+
+  private <E> Set<E> view(Set<E> set) {
+    return this.readOnly && set != null ? Collections.unmodifiableSet(set) : set;
+  }
+
+  private void checkWritable() {
+    if (this.readOnly) {
+      throw new IllegalStateException(
+          "Group " + this.name + " is shared by a cache and must not be modified");
+    }
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof Group) {
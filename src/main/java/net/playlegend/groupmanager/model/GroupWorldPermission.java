@@ -0,0 +1,44 @@
+package net.playlegend.groupmanager.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.util.UUID;
+
+@Entity
+@Table(name = "groups_world_permissions")
+public class GroupWorldPermission {
+
+  @Id
+  @Column(name = "id", nullable = false)
+  @Getter
+  @GeneratedValue
+  @UuidGenerator
+  private UUID id;
+
+  @ManyToOne
+  @JoinColumn(name = "groupId", nullable = false)
+  @Getter
+  @Setter
+  private Group group;
+
+  @Column(name = "world", nullable = false)
+  @Getter
+  @Setter
+  private String world;
+
+  @Column(name = "permission", nullable = false)
+  @Getter
+  @Setter
+  private String permission;
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof GroupWorldPermission && this.getId() != null) {
+      return this.getId().equals(((GroupWorldPermission) obj).getId());
+    }
+    return super.equals(obj);
+  }
+}
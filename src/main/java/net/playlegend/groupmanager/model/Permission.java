@@ -2,8 +2,8 @@ package net.playlegend.groupmanager.model;
 
 import jakarta.persistence.*;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 
@@ -14,14 +14,45 @@ public class Permission {
   @Id
   @Column(name = "permission", nullable = false)
   @Getter
-  @Setter
   private String permission;
 
-  @ManyToMany(mappedBy = "permissions", fetch = FetchType.EAGER)
-  @Getter
-  @Setter
+  @ManyToMany(mappedBy = "permissions", fetch = FetchType.LAZY)
   private Set<Group> groups;
 
+  /** Whether this permission is shared by the group registry, see {@link #makeReadOnly()}. */
+  @Transient private volatile boolean readOnly;
+
+  /**
+   * Marks this permission as shared between threads by the group registry. Afterwards, every
+   * setter throws and the groups can no longer be modified.
+   */
+  public void makeReadOnly() {
+    this.readOnly = true;
+  }
+
+  public void setPermission(String permission) {
+    this.checkWritable();
+    this.permission = permission;
+  }
+
+  public Set<Group> getGroups() {
+    return this.readOnly && this.groups != null
+        ? Collections.unmodifiableSet(this.groups)
+        : this.groups;
+  }
+
+  public void setGroups(Set<Group> groups) {
+    this.checkWritable();
+    this.groups = groups;
+  }
+
+  private void checkWritable() {
+    if (this.readOnly) {
+      throw new IllegalStateException(
+          "Permission " + this.permission + " is shared by the group registry");
+    }
+  }
+
   @Override
   public boolean equals(Object o) {
     if (o instanceof Permission) {
@@ -9,8 +9,15 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "ranksigns")
+@NamedEntityGraph(
+    name = RankSign.WITH_OWNER,
+    attributeNodes = @NamedAttributeNode(value = "user", subgraph = "owner"),
+    subgraphs = @NamedSubgraph(name = "owner", attributeNodes = @NamedAttributeNode("group")))
 public class RankSign {
 
+  /** Fetch plan loading the owner of a sign and the owners' primary group, as shown on the sign. */
+  public static final String WITH_OWNER = "RankSign.withOwner";
+
   @Id
   @Column(name = "id", nullable = false)
   @Getter
@@ -18,6 +25,11 @@ public class RankSign {
   @UuidGenerator
   private UUID id;
 
+  @Version
+  @Column(name = "version")
+  @Getter
+  private long version;
+
   @Column(name = "px")
   @Getter
   @Setter
@@ -2,47 +2,144 @@ package net.playlegend.groupmanager.model;
 
 import jakarta.persistence.*;
 import lombok.Getter;
-import lombok.Setter;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@NamedEntityGraph(
+    name = User.WITH_GROUPS,
+    attributeNodes = {@NamedAttributeNode("group"), @NamedAttributeNode("secondaryGroups")})
 public class User {
 
+  /**
+   * Fetch plan loading the primary and secondary groups of a user, but none of their associations.
+   * Resolve the complete groups using their ids instead. Used by every data access loading users,
+   * unless another fetch plan is given.
+   */
+  public static final String WITH_GROUPS = "User.withGroups";
+
   @Id
   @Column(name = "uuid", nullable = false)
   @Getter
-  @Setter
   private UUID uuid;
 
+  @Version
+  @Column(name = "version")
+  @Getter
+  private long version;
+
   @Column(name = "name")
   @Getter
-  @Setter
   private String name;
 
+  /** The primary group of the user, which determines the users' prefix. */
   @ManyToOne
   @JoinColumn(name = "groupId")
   @Getter
-  @Setter
   private Group group;
 
+  /** Additional groups whose permissions the user has, without affecting the prefix. */
+  @ManyToMany(fetch = FetchType.LAZY)
+  @JoinTable(
+      name = "users_secondary_groups",
+      inverseJoinColumns = {@JoinColumn(name = "groupId")},
+      joinColumns = {@JoinColumn(name = "userId")})
+  private Set<Group> secondaryGroups = new HashSet<>();
+
   @OneToMany(
       mappedBy = "user",
       cascade = CascadeType.REMOVE,
       orphanRemoval = true,
-      fetch = FetchType.EAGER)
-  @Getter
-  @Setter
+      fetch = FetchType.LAZY)
   private Set<RankSign> rankSigns;
 
+  @OneToMany(
+      mappedBy = "user",
+      cascade = CascadeType.REMOVE,
+      orphanRemoval = true,
+      fetch = FetchType.LAZY)
+  private Set<UserPermission> permissions;
+
   @Column(name = "groupValidUntil")
   @Getter
-  @Setter
   private long groupValidUntil = -1;
 
+  /** Whether this user is shared by the user cache, see {@link #makeReadOnly()}. */
+  @Transient private volatile boolean readOnly;
+
+  /**
+   * Marks this user as shared between threads by a cache. Afterwards, every setter throws and the
+   * collections can no longer be modified. Use {@link
+   * net.playlegend.groupmanager.datastore.Dao#modify(Object, java.util.function.Consumer)} to
+   * change a shared user.
+   */
+  public void makeReadOnly() {
+    this.readOnly = true;
+  }
+
+  public void setUuid(UUID uuid) {
+    this.checkWritable();
+    this.uuid = uuid;
+  }
+
+  public void setName(String name) {
+    this.checkWritable();
+    this.name = name;
+  }
+
+  public void setGroup(Group group) {
+    this.checkWritable();
+    this.group = group;
+  }
+
+  public Set<Group> getSecondaryGroups() {
+    return this.view(this.secondaryGroups);
+  }
+
+  public void setSecondaryGroups(Set<Group> secondaryGroups) {
+    this.checkWritable();
+    this.secondaryGroups = secondaryGroups;
+  }
+
+  public Set<RankSign> getRankSigns() {
+    return this.view(this.rankSigns);
+  }
+
+  public void setRankSigns(Set<RankSign> rankSigns) {
+    this.checkWritable();
+    this.rankSigns = rankSigns;
+  }
+
+  public Set<UserPermission> getPermissions() {
+    return this.view(this.permissions);
+  }
+
+  public void setPermissions(Set<UserPermission> permissions) {
+    this.checkWritable();
+    this.permissions = permissions;
+  }
+
+  public void setGroupValidUntil(long groupValidUntil) {
+    this.checkWritable();
+    this.groupValidUntil = groupValidUntil;
+  }
+
+  private <E> Set<E> view(Set<E> set) {
+    return this.readOnly && set != null ? Collections.unmodifiableSet(set) : set;
+  }
+
+  private void checkWritable() {
+    if (this.readOnly) {
+      throw new IllegalStateException(
+          "User " + this.name + " is shared by the user cache and must not be modified");
+    }
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj instanceof User) {
@@ -0,0 +1,61 @@
+package net.playlegend.groupmanager.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.UuidGenerator;
+
+import java.util.UUID;
+
+@Entity
+@Table(
+    name = "users_permissions",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "permission"}))
+public class UserPermission {
+
+  @Id
+  @Column(name = "id", nullable = false)
+  @Getter
+  @GeneratedValue
+  @UuidGenerator
+  private UUID id;
+
+  @ManyToOne
+  @JoinColumn(name = "user_id", nullable = false)
+  @Getter
+  @Setter
+  private User user;
+
+  @Column(name = "permission", nullable = false)
+  @Getter
+  @Setter
+  private String permission;
+
+  @Column(name = "granted")
+  @Getter
+  @Setter
+  private boolean granted = true;
+
+  @Column(name = "validUntil")
+  @Getter
+  @Setter
+  private long validUntil = -1;
+
+  /**
+   * Checks whether this override has expired.
+   *
+   * @param now the current time in milliseconds
+   * @return true if the override has an expiry date which has passed, false otherwise
+   */
+  public boolean isExpired(long now) {
+    return this.validUntil > 0 && this.validUntil < now;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj instanceof UserPermission) {
+      return this.getId().equals(((UserPermission) obj).getId());
+    }
+    return super.equals(obj);
+  }
+}
@@ -0,0 +1,91 @@
+package net.playlegend.groupmanager.permissible;
+
+import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+
+/**
+ * Read-only permissible backed by a {@link CompiledPermissionSet}. Used as the permissible of the
+ * {@link PermissionAttachmentInfo} objects shared by all members of a group, as those cannot refer
+ * to a single player.
+ */
+class CompiledPermissible implements Permissible {
+
+  private final CompiledPermissionSet compiledPermissions;
+
+  CompiledPermissible(CompiledPermissionSet compiledPermissions) {
+    this.compiledPermissions = compiledPermissions;
+  }
+
+  @Override
+  public boolean isPermissionSet(@NotNull String name) {
+    return this.compiledPermissions.isPermissionSet(name);
+  }
+
+  @Override
+  public boolean isPermissionSet(@NotNull Permission perm) {
+    return this.compiledPermissions.isPermissionSet(perm.getName());
+  }
+
+  @Override
+  public boolean hasPermission(@NotNull String inName) {
+    return this.compiledPermissions.hasPermission(inName);
+  }
+
+  @Override
+  public boolean hasPermission(@NotNull Permission perm) {
+    return this.compiledPermissions.hasPermission(perm);
+  }
+
+  @Override
+  public @NotNull PermissionAttachment addAttachment(
+      @NotNull Plugin plugin, @NotNull String name, boolean value) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+
+  @Override
+  public @NotNull PermissionAttachment addAttachment(@NotNull Plugin plugin) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+
+  @Override
+  public PermissionAttachment addAttachment(
+      @NotNull Plugin plugin, @NotNull String name, boolean value, int ticks) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+
+  @Override
+  public PermissionAttachment addAttachment(@NotNull Plugin plugin, int ticks) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+
+  @Override
+  public void removeAttachment(@NotNull PermissionAttachment attachment) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+
+  @Override
+  public void recalculatePermissions() {
+    // compiled permissions never change
+  }
+
+  @Override
+  public @NotNull Set<PermissionAttachmentInfo> getEffectivePermissions() {
+    return this.compiledPermissions.getEffectivePermissions();
+  }
+
+  @Override
+  public boolean isOp() {
+    return false;
+  }
+
+  @Override
+  public void setOp(boolean value) {
+    throw new UnsupportedOperationException("Compiled group permissions are read-only");
+  }
+}
@@ -0,0 +1,298 @@
+package net.playlegend.groupmanager.permissible;
+
+import lombok.Getter;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.*;
+
+/**
+ * The compiled permissions of a single group, including the permissions inherited from its
+ * ancestors and the default group. Besides the compiled automaton, this holds the precomputed
+ * answer for every permission registered with Bukkit, with declared children applied, as well as a
+ * bounded cache of the results of all other permission checks performed against it. The effective
+ * permissions are built once and shared by all members of the group. For every world the group
+ * has world scoped permissions in, a separate set is compiled which additionally contains these.
+ */
+public class CompiledPermissionSet {
+
+  @Getter private final Set<String> permissionNodes;
+
+  @Getter private final Set<String> ownPermissionNodes;
+
+  @Getter private final Set<UUID> parentIds;
+
+  @Getter private final Map<String, Set<String>> ownWorldPermissionNodes;
+
+  private final Map<String, CompiledPermissionSet> worldPermissionSets;
+
+  private final PermissionAutomaton permissionAutomaton;
+
+  @Getter private final PermissionResultCache resultCache;
+
+  private final RegisteredPermissionIndex registeredPermissions;
+
+  private final PermissionTelemetry telemetry;
+
+  private final long[] registeredAnswers;
+
+  private final Map<String, Boolean> childPermissions;
+
+  private final Map<String, Boolean> effectiveValues;
+
+  @Getter private final Set<PermissionAttachmentInfo> effectivePermissions;
+
+  @Getter private final long compileTimeNanos;
+
+  /**
+   * Compiles a new permission set.
+   *
+   * @param permissionNodes all permission rules of this set, possibly negated
+   * @param ownPermissionNodes the permission nodes the group has been given directly
+   * @param parentIds the ids of the groups' direct parents
+   * @param worldPermissionNodes all world scoped permission rules, mapped by world name
+   * @param ownWorldPermissionNodes the world scoped permission nodes the group has been given
+   *     directly, mapped by world name
+   * @param registeredPermissions the permissions registered with Bukkit to precompute answers for
+   * @param nodeInterner the interner used to look up permission node ids
+   * @param telemetry the telemetry to record permission checks in
+   * @param resultCacheSize the maximum amount of permission check results to cache
+   */
+  public CompiledPermissionSet(
+      Set<String> permissionNodes,
+      Set<String> ownPermissionNodes,
+      Set<UUID> parentIds,
+      Map<String, Set<String>> worldPermissionNodes,
+      Map<String, Set<String>> ownWorldPermissionNodes,
+      RegisteredPermissionIndex registeredPermissions,
+      PermissionNodeInterner nodeInterner,
+      PermissionTelemetry telemetry,
+      int resultCacheSize) {
+    long compileStart = System.nanoTime();
+    this.permissionNodes = Set.copyOf(permissionNodes);
+    this.ownPermissionNodes = Set.copyOf(ownPermissionNodes);
+    this.parentIds = Set.copyOf(parentIds);
+    this.ownWorldPermissionNodes = Map.copyOf(ownWorldPermissionNodes);
+    Map<String, CompiledPermissionSet> worldPermissionSets = new HashMap<>();
+    worldPermissionNodes.forEach(
+        (world, nodes) -> {
+          Set<String> combinedNodes = new HashSet<>(permissionNodes);
+          combinedNodes.addAll(nodes);
+          worldPermissionSets.put(
+              world,
+              new CompiledPermissionSet(
+                  combinedNodes,
+                  ownPermissionNodes,
+                  parentIds,
+                  Collections.emptyMap(),
+                  Collections.emptyMap(),
+                  registeredPermissions,
+                  nodeInterner,
+                  telemetry,
+                  resultCacheSize));
+        });
+    this.worldPermissionSets = Map.copyOf(worldPermissionSets);
+    this.resultCache = new PermissionResultCache(nodeInterner, resultCacheSize);
+    this.permissionAutomaton = new PermissionAutomaton(this.permissionNodes);
+    this.registeredPermissions = registeredPermissions;
+    this.telemetry = telemetry;
+
+    // apply the children of every granted registered permission, like Bukkit does
+    Map<String, Boolean> childPermissions = new HashMap<>();
+    Set<String> expanded = new HashSet<>();
+    Boolean[] ruleValues = new Boolean[registeredPermissions.size()];
+    for (int i = 0; i < ruleValues.length; i++) {
+      ruleValues[i] = this.permissionAutomaton.getValue(registeredPermissions.getName(i));
+      if (Boolean.TRUE.equals(ruleValues[i])) {
+        this.expandChildren(
+            registeredPermissions.getChildren(i), false, childPermissions, expanded);
+      }
+    }
+    this.childPermissions = Map.copyOf(childPermissions);
+    this.registeredAnswers = new long[(ruleValues.length + 63) >>> 6];
+    for (int i = 0; i < ruleValues.length; i++) {
+      String name = registeredPermissions.getName(i).toLowerCase(Locale.ROOT);
+      // rules of the group take precedence over children of other permissions
+      boolean value =
+          ruleValues[i] != null
+              ? ruleValues[i]
+              : Boolean.TRUE.equals(this.childPermissions.get(name));
+      if (value) {
+        this.registeredAnswers[i >>> 6] |= 1L << i;
+      }
+    }
+
+    // the same values hasPermission answers with, for every node that is set
+    Map<String, Boolean> effectiveValues = new HashMap<>(this.childPermissions);
+    for (String node : this.permissionNodes) {
+      boolean value = !node.startsWith("-");
+      String name = (value ? node : node.substring(1)).toLowerCase(Locale.ROOT);
+      effectiveValues.merge(name, value, Boolean::logicalAnd);
+    }
+    for (int i = 0; i < ruleValues.length; i++) {
+      String name = registeredPermissions.getName(i).toLowerCase(Locale.ROOT);
+      if (this.isRegisteredPermissionGranted(i)) {
+        effectiveValues.put(name, true);
+      } else if (effectiveValues.containsKey(name)) {
+        effectiveValues.put(name, false);
+      }
+    }
+    this.effectiveValues = Map.copyOf(effectiveValues);
+    CompiledPermissible permissible = new CompiledPermissible(this);
+    Set<PermissionAttachmentInfo> effectivePermissions = new HashSet<>();
+    for (Map.Entry<String, Boolean> entry : this.effectiveValues.entrySet()) {
+      effectivePermissions.add(
+          new PermissionAttachmentInfo(permissible, entry.getKey(), null, entry.getValue()));
+    }
+    this.effectivePermissions = Collections.unmodifiableSet(effectivePermissions);
+    this.compileTimeNanos = System.nanoTime() - compileStart;
+  }
+
+  /**
+   * Recursively applies the children of a permission. A child set to false inverts the values of
+   * its own children. If a child is set to different values by different parents, false wins.
+   *
+   * @param children the children to apply
+   * @param invert whether to invert the values of the children
+   * @param output the map to store the resulting child values in
+   * @param expanded the children already expanded, used to stop at cyclic declarations
+   */
+  private void expandChildren(
+      Map<String, Boolean> children,
+      boolean invert,
+      Map<String, Boolean> output,
+      Set<String> expanded) {
+    for (Map.Entry<String, Boolean> child : children.entrySet()) {
+      String name = child.getKey().toLowerCase(Locale.ROOT);
+      boolean value = child.getValue() ^ invert;
+      output.merge(name, value, Boolean::logicalAnd);
+      int index = this.registeredPermissions.indexOf(name);
+      if (index != -1 && expanded.add(name + ":" + value)) {
+        this.expandChildren(
+            this.registeredPermissions.getChildren(index), !value, output, expanded);
+      }
+    }
+  }
+
+  /**
+   * Returns the set to check permissions against while in a world. Does not compile anything.
+   *
+   * @param world the name of the world, may be null
+   * @return the set compiled for the world or this set if there are no world scoped permissions
+   */
+  public CompiledPermissionSet getWorldPermissions(String world) {
+    if (world == null || this.worldPermissionSets.isEmpty()) return this;
+    return this.worldPermissionSets.getOrDefault(world, this);
+  }
+
+  /**
+   * Checks whether a permission is granted by this set. Results are cached.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is granted, false otherwise
+   */
+  public boolean hasPermission(String permission) {
+    // check if cached and if cached, return the cached value
+    int nodeId = this.resultCache.lookup(permission);
+    if (this.resultCache.contains(nodeId)) {
+      this.telemetry.recordHit(nodeId);
+      return this.resultCache.get(nodeId);
+    }
+    this.telemetry.recordMiss(nodeId);
+    boolean result;
+    if (this.telemetry.shouldSampleLatency()) {
+      long start = System.nanoTime();
+      result = this.resolve(permission);
+      this.telemetry.recordLatency(System.nanoTime() - start);
+    } else {
+      result = this.resolve(permission);
+    }
+    this.resultCache.put(nodeId, result);
+    return result;
+  }
+
+  /**
+   * Resolves the given permission nodes and caches the results, so that the first checks after
+   * this set has been published do not have to take the slow path. The sets compiled for worlds
+   * are prewarmed as well. Neither counts as a check nor as an access of the nodes.
+   *
+   * @param permissions the permission nodes to prewarm, most important first
+   */
+  public void prewarm(List<String> permissions) {
+    for (String permission : permissions) {
+      int nodeId = this.resultCache.getNodeId(permission);
+      if (nodeId < 0) break;
+      this.resultCache.put(nodeId, this.resolve(permission));
+    }
+    this.worldPermissionSets.values().forEach(worldSet -> worldSet.prewarm(permissions));
+  }
+
+  /**
+   * Checks whether a registered permission is granted by this set. Permissions registered at the
+   * time of compilation are answered by reading the precomputed answer, which is counted as a hit
+   * without looking up the node, all others fall back to {@link #hasPermission(String)}.
+   *
+   * @param permission the permission to check
+   * @return true if the permission is granted, false otherwise
+   */
+  public boolean hasPermission(Permission permission) {
+    int index = this.registeredPermissions.indexOf(permission);
+    if (index == -1) return this.hasPermission(permission.getName());
+    this.telemetry.recordPrecomputedHit();
+    return this.isRegisteredPermissionGranted(index);
+  }
+
+  /**
+   * Checks whether a permission is set by this set, either as one of its nodes, as a registered
+   * permission granted by a wildcard or as the child of a granted permission.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is set, false otherwise
+   */
+  public boolean isPermissionSet(String permission) {
+    return this.effectiveValues.containsKey(permission.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Checks whether this set answers every permission check like another set, which is the case if
+   * both have been compiled from the same rules against equivalent registered permissions.
+   *
+   * @param other the set to compare with, may be null
+   * @return true if both sets are equivalent, false otherwise
+   */
+  public boolean isEquivalent(CompiledPermissionSet other) {
+    if (this == other) return true;
+    if (other == null
+        || !this.permissionNodes.equals(other.permissionNodes)
+        || !this.worldPermissionSets.keySet().equals(other.worldPermissionSets.keySet())
+        || !this.registeredPermissions.isEquivalent(other.registeredPermissions)) {
+      return false;
+    }
+    for (Map.Entry<String, CompiledPermissionSet> entry : this.worldPermissionSets.entrySet()) {
+      CompiledPermissionSet otherWorldPermissions = other.worldPermissionSets.get(entry.getKey());
+      if (!entry.getValue().permissionNodes.equals(otherWorldPermissions.permissionNodes)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isRegisteredPermissionGranted(int index) {
+    return (this.registeredAnswers[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Computes whether a permission is granted by this set without using the result cache.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is granted, false otherwise
+   */
+  private boolean resolve(String permission) {
+    int index = this.registeredPermissions.indexOf(permission);
+    if (index != -1) return this.isRegisteredPermissionGranted(index);
+    Boolean value = this.permissionAutomaton.getValue(permission);
+    if (value != null) return value;
+    if (this.childPermissions.isEmpty()) return false;
+    return Boolean.TRUE.equals(this.childPermissions.get(permission.toLowerCase(Locale.ROOT)));
+  }
+}
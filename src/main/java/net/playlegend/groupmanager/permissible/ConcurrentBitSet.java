@@ -0,0 +1,112 @@
+package net.playlegend.groupmanager.permissible;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe bit set, growing on demand. Bits are stored in pages which are only allocated once a
+ * bit inside them is set. Reading never locks, setting only locks when a new page is allocated.
+ */
+public class ConcurrentBitSet {
+
+  private static final int PAGE_SHIFT = 12;
+  private static final int PAGE_WORDS = (1 << PAGE_SHIFT) >>> 6;
+  private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+  private volatile AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(1);
+
+  /**
+   * Returns the value of a bit.
+   *
+   * @param index the index of the bit
+   * @return true if the bit is set, false otherwise
+   */
+  public boolean get(int index) {
+    AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+    int pageIndex = index >>> PAGE_SHIFT;
+    if (pageIndex >= pages.length()) return false;
+    AtomicLongArray page = pages.get(pageIndex);
+    if (page == null) return false;
+    return (page.get((index & PAGE_MASK) >>> 6) & (1L << index)) != 0;
+  }
+
+  /**
+   * Sets a bit to the given value.
+   *
+   * @param index the index of the bit
+   * @param value the value to set the bit to
+   * @return true if the value of the bit has changed, false otherwise
+   */
+  public boolean set(int index, boolean value) {
+    AtomicLongArray page;
+    if (value) {
+      page = this.getOrCreatePage(index >>> PAGE_SHIFT);
+    } else {
+      AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+      int pageIndex = index >>> PAGE_SHIFT;
+      if (pageIndex >= pages.length() || (page = pages.get(pageIndex)) == null) return false;
+    }
+    int wordIndex = (index & PAGE_MASK) >>> 6;
+    long mask = 1L << index;
+    while (true) {
+      long word = page.get(wordIndex);
+      long newWord = value ? word | mask : word & ~mask;
+      if (word == newWord) return false;
+      if (page.compareAndSet(wordIndex, word, newWord)) return true;
+    }
+  }
+
+  /**
+   * Returns the index of the first set bit at or after the given index.
+   *
+   * @param fromIndex the index to start searching at (inclusive)
+   * @param toIndex the index to stop searching at (exclusive)
+   * @return the index of the first set bit found or -1 if there is none
+   */
+  public int nextSetBit(int fromIndex, int toIndex) {
+    AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+    int index = fromIndex;
+    while (index < toIndex) {
+      int pageIndex = index >>> PAGE_SHIFT;
+      if (pageIndex >= pages.length()) return -1;
+      AtomicLongArray page = pages.get(pageIndex);
+      if (page == null) {
+        index = (pageIndex + 1) << PAGE_SHIFT;
+        continue;
+      }
+      int wordIndex = (index & PAGE_MASK) >>> 6;
+      long word = page.get(wordIndex) & (-1L << index);
+      if (word != 0) {
+        int found = (index & ~63) + Long.numberOfTrailingZeros(word);
+        return found < toIndex ? found : -1;
+      }
+      index = (index & ~63) + 64;
+    }
+    return -1;
+  }
+
+  private AtomicLongArray getOrCreatePage(int pageIndex) {
+    AtomicReferenceArray<AtomicLongArray> pages = this.pages;
+    if (pageIndex < pages.length()) {
+      AtomicLongArray page = pages.get(pageIndex);
+      if (page != null) return page;
+    }
+    synchronized (this) {
+      pages = this.pages;
+      if (pageIndex >= pages.length()) {
+        AtomicReferenceArray<AtomicLongArray> grownPages =
+            new AtomicReferenceArray<>(Math.max(pageIndex + 1, pages.length() * 2));
+        for (int i = 0; i < pages.length(); i++) {
+          grownPages.set(i, pages.get(i));
+        }
+        this.pages = pages = grownPages;
+      }
+      AtomicLongArray page = pages.get(pageIndex);
+      if (page == null) {
+        page = new AtomicLongArray(PAGE_WORDS);
+        pages.set(pageIndex, page);
+      }
+      return page;
+    }
+  }
+}
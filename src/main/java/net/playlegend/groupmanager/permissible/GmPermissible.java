@@ -1,26 +1,46 @@
 package net.playlegend.groupmanager.permissible;
 
 import net.playlegend.groupmanager.GroupManagerPlugin;
-import net.playlegend.groupmanager.model.Group;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.permissions.PermissibleBase;
 import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.permissions.PermissionRemovedExecutor;
 import org.bukkit.permissions.ServerOperator;
+import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
 
-/** Proxy object to intercept calls to hasPermission. */
+/**
+ * Proxy object to intercept calls to hasPermission. Permissions are answered from the resolved
+ * state of the player, overlaid with the permissions of the attachments added to this permissible
+ * by other plugins. Changing an attachment only recalculates that overlay.
+ */
 public class GmPermissible extends PermissibleBase {
 
   private Player associatedPlayer;
 
   private PermissibleBase oldPermissible;
 
+  private volatile ResolvedPermissions resolvedPermissions = ResolvedPermissions.NONE;
+
+  private final List<PermissionAttachment> attachments = new CopyOnWriteArrayList<>();
+
+  private volatile Map<String, PermissionAttachmentInfo> attachmentPermissions =
+      Collections.emptyMap();
+
+  private volatile Set<PermissionAttachmentInfo> effectivePermissions;
+
+  private volatile long effectivePermissionsValidUntil;
+
+  private volatile String world;
+
   public GmPermissible(PermissibleBase oldPermissible) {
     super(oldPermissible);
     this.oldPermissible = oldPermissible;
@@ -37,82 +57,189 @@ public class GmPermissible extends PermissibleBase {
 
   @Override
   public boolean hasPermission(@NotNull String inName) {
-    Group group =
-        GroupManagerPlugin.getInstance()
-            .getPermissibleManager()
-            .getCachedPlayerGroups()
-            .get(this.associatedPlayer.getUniqueId());
-    if (group != null) {
-      Map<String, Boolean> groupPermissionCache =
-          GroupManagerPlugin.getInstance()
-              .getPermissibleManager()
-              .getCachedGroupCheckedPermissions()
-              .computeIfAbsent(group, k -> new HashMap<>());
-
-      // check if cached and if cached, return the cached value
-      if (groupPermissionCache.containsKey(inName)) {
-        return groupPermissionCache.get(inName);
+    Map<String, PermissionAttachmentInfo> overlay = this.attachmentPermissions;
+    if (!overlay.isEmpty()) {
+      PermissionAttachmentInfo info = overlay.get(inName.toLowerCase(Locale.ROOT));
+      if (info != null) return info.getValue();
+    }
+    return this.resolvedPermissions.hasPermission(inName);
+  }
+
+  @Override
+  public boolean hasPermission(@NotNull Permission perm) {
+    Map<String, PermissionAttachmentInfo> overlay = this.attachmentPermissions;
+    if (!overlay.isEmpty()) {
+      PermissionAttachmentInfo info = overlay.get(perm.getName().toLowerCase(Locale.ROOT));
+      if (info != null) return info.getValue();
+    }
+    return this.resolvedPermissions.hasPermission(perm);
+  }
+
+  @Override
+  public boolean isPermissionSet(@NotNull String name) {
+    Map<String, PermissionAttachmentInfo> overlay = this.attachmentPermissions;
+    if (!overlay.isEmpty() && overlay.containsKey(name.toLowerCase(Locale.ROOT))) return true;
+    return this.resolvedPermissions.isPermissionSet(name);
+  }
+
+  @Override
+  public boolean isPermissionSet(@NotNull Permission perm) {
+    return this.isPermissionSet(perm.getName());
+  }
+
+  @Override
+  public @NotNull Set<PermissionAttachmentInfo> getEffectivePermissions() {
+    ResolvedPermissions resolved = this.resolvedPermissions;
+    Map<String, PermissionAttachmentInfo> overlay = this.attachmentPermissions;
+    if (overlay.isEmpty() && resolved.getPermissionDelta().isEmpty()) {
+      return resolved.getEffectivePermissions();
+    }
+    long now = System.currentTimeMillis();
+    Set<PermissionAttachmentInfo> result = this.effectivePermissions;
+    if (result == null || now >= this.effectivePermissionsValidUntil) {
+      // only players with overrides or attachments need their own set, combined once per change
+      Map<String, PermissionAttachmentInfo> combined = new HashMap<>();
+      for (PermissionAttachmentInfo info : resolved.getEffectivePermissions()) {
+        combined.put(info.getPermission(), info);
       }
-      Set<net.playlegend.groupmanager.model.Permission> permissionsSet =
-          GroupManagerPlugin.getInstance()
-              .getPermissibleManager()
-              .getCachedGroupPermissions()
-              .get(group);
-      Set<net.playlegend.groupmanager.model.Permission> defaultPermissionsSet =
-          GroupManagerPlugin.getInstance()
-              .getPermissibleManager()
-              .getCachedGroupPermissions()
-              .get(GroupManagerPlugin.getInstance().getDefaultGroup());
-      Set<net.playlegend.groupmanager.model.Permission> combinedSet = new HashSet<>(permissionsSet);
-      combinedSet.addAll(defaultPermissionsSet);
-
-      // check for star permission up front
-      if (this.isPermissionPresent(combinedSet, "*")) {
-        groupPermissionCache.put(inName, true);
-        return true;
+      resolved
+          .getPermissionDelta()
+          .getValues(now)
+          .forEach(
+              (node, value) ->
+                  combined.put(node, new PermissionAttachmentInfo(this, node, null, value)));
+      combined.putAll(overlay);
+      result = Collections.unmodifiableSet(new HashSet<>(combined.values()));
+      if (this.attachmentPermissions == overlay && this.resolvedPermissions == resolved) {
+        this.effectivePermissionsValidUntil = resolved.getPermissionDelta().getNextExpiry(now);
+        this.effectivePermissions = result;
       }
+    }
+    return result;
+  }
 
-      // no one can have an empty permission
-      if (inName.length() == 0) return false;
+  @Override
+  public @NotNull PermissionAttachment addAttachment(
+      @NotNull Plugin plugin, @NotNull String name, boolean value) {
+    PermissionAttachment attachment = this.addAttachment(plugin);
+    attachment.setPermission(name, value);
+    return attachment;
+  }
 
-      // check against the raw permission
-      if (this.isPermissionPresent(combinedSet, inName)) {
-        groupPermissionCache.put(inName, true);
-        return true;
-      }
+  @Override
+  public @NotNull PermissionAttachment addAttachment(@NotNull Plugin plugin) {
+    if (!plugin.isEnabled()) {
+      throw new IllegalArgumentException("Plugin " + plugin.getName() + " is disabled");
+    }
+    PermissionAttachment attachment = new PermissionAttachment(plugin, this);
+    this.attachments.add(attachment);
+    this.recalculatePermissions();
+    return attachment;
+  }
 
-      // check against possible wildcard permission
-      if (inName.contains(".")) {
-        String[] parts = inName.split("\\.");
-        for (int i = 0; i < parts.length; i++) {
-          StringBuilder result = new StringBuilder();
-          for (int j = 0; j < i; j++) {
-            result.append(parts[j]).append(".");
-          }
-          result.append("*");
-          if (this.isPermissionPresent(combinedSet, result.toString())) {
-            groupPermissionCache.put(inName, true);
-            return true;
-          }
-        }
-      }
-      groupPermissionCache.put(inName, false);
+  @Override
+  public @Nullable PermissionAttachment addAttachment(
+      @NotNull Plugin plugin, @NotNull String name, boolean value, int ticks) {
+    PermissionAttachment attachment = this.addAttachment(plugin, ticks);
+    if (attachment != null) attachment.setPermission(name, value);
+    return attachment;
+  }
+
+  @Override
+  public @Nullable PermissionAttachment addAttachment(@NotNull Plugin plugin, int ticks) {
+    PermissionAttachment attachment = this.addAttachment(plugin);
+    if (Bukkit.getScheduler().scheduleSyncDelayedTask(plugin, attachment::remove, ticks) == -1) {
+      GroupManagerPlugin.getInstance()
+          .log(Level.WARNING, "Could not schedule removal of a temporary permission attachment.");
+      attachment.remove();
+      return null;
     }
-    return false;
+    return attachment;
   }
 
   @Override
-  public boolean hasPermission(@NotNull Permission perm) {
-    return this.hasPermission(perm.getName());
+  public void removeAttachment(@NotNull PermissionAttachment attachment) {
+    if (!this.attachments.remove(attachment)) {
+      throw new IllegalArgumentException("Given attachment is not part of Permissible object");
+    }
+    PermissionRemovedExecutor removalCallback = attachment.getRemovalCallback();
+    if (removalCallback != null) removalCallback.attachmentRemoved(attachment);
+    this.recalculatePermissions();
   }
 
-  private boolean isPermissionPresent(
-      Set<net.playlegend.groupmanager.model.Permission> permissionSet, String permission) {
-    for (net.playlegend.groupmanager.model.Permission p : permissionSet) {
-      if (permission.equalsIgnoreCase(p.getPermission())) {
-        return true;
+  /**
+   * Recalculates the attachment overlay of this permissible. Called by Bukkit whenever one of the
+   * attachments changes. The compiled group state is not touched.
+   */
+  @Override
+  public synchronized void recalculatePermissions() {
+    // invoked by the constructor of PermissibleBase before the fields are initialized
+    if (this.attachments == null) return;
+    Map<String, PermissionAttachmentInfo> overlay = new HashMap<>();
+    for (PermissionAttachment attachment : this.attachments) {
+      for (Map.Entry<String, Boolean> entry : attachment.getPermissions().entrySet()) {
+        this.applyAttachmentPermission(
+            entry.getKey(), entry.getValue(), attachment, overlay, new HashSet<>());
       }
     }
-    return false;
+    this.attachmentPermissions = overlay.isEmpty() ? Collections.emptyMap() : Map.copyOf(overlay);
+    this.effectivePermissions = null;
+  }
+
+  /**
+   * Adds a permission set by an attachment and its children, if registered, to the overlay.
+   *
+   * @param name the name of the permission
+   * @param value the value the permission is set to
+   * @param attachment the attachment setting the permission
+   * @param overlay the overlay to add the permission to
+   * @param visited the permissions already applied, used to stop at cyclic children
+   */
+  private void applyAttachmentPermission(
+      String name,
+      boolean value,
+      PermissionAttachment attachment,
+      Map<String, PermissionAttachmentInfo> overlay,
+      Set<String> visited) {
+    String lowerName = name.toLowerCase(Locale.ROOT);
+    if (!visited.add(lowerName)) return;
+    overlay.put(lowerName, new PermissionAttachmentInfo(this, lowerName, attachment, value));
+    Permission permission = Bukkit.getPluginManager().getPermission(lowerName);
+    if (permission == null) return;
+    for (Map.Entry<String, Boolean> child : permission.getChildren().entrySet()) {
+      this.applyAttachmentPermission(
+          child.getKey(), child.getValue() ^ !value, attachment, overlay, visited);
+    }
+  }
+
+  String getWorld() {
+    return this.world;
+  }
+
+  /**
+   * Points this permissible to the precompiled permissions of another world. Called by the {@link
+   * PermissibleManager} whenever the player changes worlds.
+   *
+   * @param world the name of the players' new world
+   */
+  void setWorld(String world) {
+    this.world = world;
+    this.setResolvedPermissions(this.resolvedPermissions.withWorld(world));
+  }
+
+  ResolvedPermissions getResolvedPermissions() {
+    return this.resolvedPermissions;
+  }
+
+  /**
+   * Points this permissible to a new resolved permission state. Called by the {@link
+   * PermissibleManager} whenever the players' group or its permissions change.
+   *
+   * @param resolvedPermissions the new state
+   */
+  void setResolvedPermissions(ResolvedPermissions resolvedPermissions) {
+    if (this.resolvedPermissions == resolvedPermissions) return;
+    this.resolvedPermissions = resolvedPermissions;
+    this.effectivePermissions = null;
   }
 }
@@ -0,0 +1,291 @@
+package net.playlegend.groupmanager.permissible;
+
+import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.GroupWorldPermission;
+import net.playlegend.groupmanager.model.Permission;
+
+import java.util.*;
+
+/**
+ * Resolves group inheritance. Flattens the permission nodes of a group and all of its ancestors
+ * into one set, and the world scoped nodes into one set per world, and finds the descendants of
+ * groups, so that only groups affected by a change have to be recompiled. Groups inheriting from
+ * each other in a cycle are detected and resolved to the same permissions, see {@link
+ * #getCycles()}.
+ */
+public class GroupHierarchy {
+
+  private final Map<UUID, Set<String>> ownPermissionNodes = new HashMap<>();
+
+  private final Map<UUID, Set<UUID>> parentIds = new HashMap<>();
+
+  private final Map<UUID, Set<UUID>> childIds = new HashMap<>();
+
+  private final Map<UUID, Set<String>> effectivePermissionNodes = new HashMap<>();
+
+  private final Map<UUID, Map<String, Set<String>>> ownWorldPermissionNodes = new HashMap<>();
+
+  private final Map<UUID, Map<String, Set<String>>> effectiveWorldPermissionNodes =
+      new HashMap<>();
+
+  private final Map<UUID, String> groupNames = new HashMap<>();
+
+  private final Map<UUID, Set<UUID>> components = new HashMap<>();
+
+  private final List<String> cycles = new ArrayList<>();
+
+  /**
+   * Creates a new hierarchy containing the given groups. Parents that are not part of the given
+   * groups are ignored.
+   *
+   * @param groups all groups to consider
+   */
+  public GroupHierarchy(Collection<Group> groups) {
+    for (Group group : groups) {
+      Set<String> permissionNodes = new HashSet<>();
+      for (Permission permission : group.getPermissions()) {
+        permissionNodes.add(permission.getPermission());
+      }
+      this.ownPermissionNodes.put(group.getId(), permissionNodes);
+      Map<String, Set<String>> worldPermissionNodes = new HashMap<>();
+      if (group.getWorldPermissions() != null) {
+        for (GroupWorldPermission worldPermission : group.getWorldPermissions()) {
+          worldPermissionNodes
+              .computeIfAbsent(worldPermission.getWorld(), k -> new HashSet<>())
+              .add(worldPermission.getPermission());
+        }
+      }
+      this.ownWorldPermissionNodes.put(group.getId(), worldPermissionNodes);
+      this.groupNames.put(group.getId(), group.getName());
+    }
+    for (Group group : groups) {
+      Set<UUID> parents = new HashSet<>();
+      if (group.getParents() != null) {
+        for (Group parent : group.getParents()) {
+          if (!this.ownPermissionNodes.containsKey(parent.getId())) continue;
+          parents.add(parent.getId());
+          this.childIds.computeIfAbsent(parent.getId(), k -> new HashSet<>()).add(group.getId());
+        }
+      }
+      this.parentIds.put(group.getId(), parents);
+    }
+    this.findComponents();
+  }
+
+  /**
+   * Returns the permission nodes a group has been given directly.
+   *
+   * @param group the group
+   * @return the groups' own permission nodes
+   */
+  public Set<String> getOwnPermissionNodes(Group group) {
+    return this.ownPermissionNodes.getOrDefault(group.getId(), Collections.emptySet());
+  }
+
+  /**
+   * Returns the world scoped permission nodes a group has been given directly.
+   *
+   * @param group the group
+   * @return the groups' own world scoped permission nodes, mapped by world name
+   */
+  public Map<String, Set<String>> getOwnWorldPermissionNodes(Group group) {
+    return this.ownWorldPermissionNodes.getOrDefault(group.getId(), Collections.emptyMap());
+  }
+
+  /**
+   * Returns the ids of the direct parents of a group.
+   *
+   * @param group the group
+   * @return the ids of the groups' parents
+   */
+  public Set<UUID> getParentIds(Group group) {
+    return this.parentIds.getOrDefault(group.getId(), Collections.emptySet());
+  }
+
+  /**
+   * Returns the permission nodes of a group including all nodes inherited from its ancestors. The
+   * result is computed once per group and memoized. Groups inheriting from each other in a cycle
+   * all receive the union of the cycle's nodes.
+   *
+   * @param group the group
+   * @return the groups' effective permission nodes
+   */
+  public Set<String> getEffectivePermissionNodes(Group group) {
+    return this.resolve(group.getId());
+  }
+
+  private Set<String> resolve(UUID groupId) {
+    Set<String> resolved = this.effectivePermissionNodes.get(groupId);
+    if (resolved != null) return resolved;
+    Set<UUID> component = this.getComponent(groupId);
+    Set<String> permissionNodes = new HashSet<>();
+    for (UUID memberId : component) {
+      permissionNodes.addAll(
+          this.ownPermissionNodes.getOrDefault(memberId, Collections.emptySet()));
+      for (UUID parentId : this.parentIds.getOrDefault(memberId, Collections.emptySet())) {
+        if (component.contains(parentId)) continue;
+        permissionNodes.addAll(this.resolve(parentId));
+      }
+    }
+    for (UUID memberId : component) {
+      this.effectivePermissionNodes.put(memberId, permissionNodes);
+    }
+    return permissionNodes;
+  }
+
+  /**
+   * Returns the world scoped permission nodes of a group including all world scoped nodes
+   * inherited from its ancestors. Only worlds for which there are any nodes are contained. The
+   * result is computed once per group and memoized.
+   *
+   * @param group the group
+   * @return the groups' effective world scoped permission nodes, mapped by world name
+   */
+  public Map<String, Set<String>> getEffectiveWorldPermissionNodes(Group group) {
+    return this.resolveWorlds(group.getId());
+  }
+
+  private Map<String, Set<String>> resolveWorlds(UUID groupId) {
+    Map<String, Set<String>> resolved = this.effectiveWorldPermissionNodes.get(groupId);
+    if (resolved != null) return resolved;
+    Set<UUID> component = this.getComponent(groupId);
+    Map<String, Set<String>> worldPermissionNodes = new HashMap<>();
+    for (UUID memberId : component) {
+      mergeWorlds(
+          worldPermissionNodes,
+          this.ownWorldPermissionNodes.getOrDefault(memberId, Collections.emptyMap()));
+      for (UUID parentId : this.parentIds.getOrDefault(memberId, Collections.emptySet())) {
+        if (component.contains(parentId)) continue;
+        mergeWorlds(worldPermissionNodes, this.resolveWorlds(parentId));
+      }
+    }
+    for (UUID memberId : component) {
+      this.effectiveWorldPermissionNodes.put(memberId, worldPermissionNodes);
+    }
+    return worldPermissionNodes;
+  }
+
+  private Set<UUID> getComponent(UUID groupId) {
+    return this.components.getOrDefault(groupId, Collections.singleton(groupId));
+  }
+
+  private static void mergeWorlds(
+      Map<String, Set<String>> target, Map<String, Set<String>> worldPermissionNodes) {
+    worldPermissionNodes.forEach(
+        (world, nodes) -> target.computeIfAbsent(world, k -> new HashSet<>()).addAll(nodes));
+  }
+
+  /**
+   * Groups all groups into their strongly connected components of the inheritance graph (Tarjan),
+   * so that every group in an inheritance cycle resolves to the same permissions no matter which
+   * group is resolved first. Each cycle is recorded once with its path.
+   */
+  private void findComponents() {
+    Map<UUID, Integer> indices = new HashMap<>();
+    Map<UUID, Integer> lowLinks = new HashMap<>();
+    Deque<UUID> stack = new ArrayDeque<>();
+    Set<UUID> onStack = new HashSet<>();
+    for (UUID groupId : this.ownPermissionNodes.keySet()) {
+      if (!indices.containsKey(groupId)) {
+        this.connect(groupId, indices, lowLinks, stack, onStack);
+      }
+    }
+  }
+
+  private void connect(
+      UUID groupId,
+      Map<UUID, Integer> indices,
+      Map<UUID, Integer> lowLinks,
+      Deque<UUID> stack,
+      Set<UUID> onStack) {
+    indices.put(groupId, indices.size());
+    lowLinks.put(groupId, indices.get(groupId));
+    stack.push(groupId);
+    onStack.add(groupId);
+    for (UUID parentId : this.parentIds.get(groupId)) {
+      if (!indices.containsKey(parentId)) {
+        this.connect(parentId, indices, lowLinks, stack, onStack);
+        lowLinks.put(groupId, Math.min(lowLinks.get(groupId), lowLinks.get(parentId)));
+      } else if (onStack.contains(parentId)) {
+        lowLinks.put(groupId, Math.min(lowLinks.get(groupId), indices.get(parentId)));
+      }
+    }
+    if (!lowLinks.get(groupId).equals(indices.get(groupId))) return;
+    Set<UUID> component = new HashSet<>();
+    UUID memberId;
+    do {
+      memberId = stack.pop();
+      onStack.remove(memberId);
+      component.add(memberId);
+      this.components.put(memberId, component);
+    } while (!memberId.equals(groupId));
+    if (component.size() > 1 || this.parentIds.get(groupId).contains(groupId)) {
+      this.cycles.add(this.describeCycle(groupId, component));
+    }
+  }
+
+  private String describeCycle(UUID startId, Set<UUID> component) {
+    // breadth-first search along the parent edges inside the component back to the start group,
+    // preferring the cycle through other groups over a group inheriting from itself
+    Map<UUID, UUID> previous = new HashMap<>();
+    Deque<UUID> queue = new ArrayDeque<>();
+    queue.add(startId);
+    while (!queue.isEmpty()) {
+      UUID groupId = queue.poll();
+      for (UUID parentId : this.parentIds.get(groupId)) {
+        if (!component.contains(parentId) || previous.containsKey(parentId)) continue;
+        if (parentId.equals(groupId) && component.size() > 1) continue;
+        previous.put(parentId, groupId);
+        queue.add(parentId);
+      }
+      if (previous.containsKey(startId)) break;
+    }
+    Deque<String> path = new ArrayDeque<>();
+    UUID groupId = startId;
+    do {
+      path.push("\"" + this.groupNames.get(groupId) + "\"");
+      groupId = previous.get(groupId);
+    } while (!groupId.equals(startId));
+    path.push("\"" + this.groupNames.get(startId) + "\"");
+    return String.join(" -> ", path);
+  }
+
+  /**
+   * Returns the inheritance cycles found among the groups, one per set of groups inheriting from
+   * each other, each described by the path of group names leading back to its first group, like
+   * {@code "A" -> "B" -> "A"}.
+   *
+   * @return the descriptions of all inheritance cycles, empty if there are none
+   */
+  public List<String> getCycles() {
+    return Collections.unmodifiableList(this.cycles);
+  }
+
+  /**
+   * Resolves and memoizes the effective permission nodes of all groups at once. Afterwards, the
+   * hierarchy is only read from and may be shared between threads.
+   */
+  public void resolveAll() {
+    for (UUID groupId : this.ownPermissionNodes.keySet()) {
+      this.resolve(groupId);
+      this.resolveWorlds(groupId);
+    }
+  }
+
+  /**
+   * Collects the ids of the given groups and all of their descendants.
+   *
+   * @param groupIds the ids of the groups to start from
+   * @return the ids of the given groups and all groups inheriting from them
+   */
+  public Set<UUID> getDescendantIds(Set<UUID> groupIds) {
+    Set<UUID> descendants = new HashSet<>();
+    Deque<UUID> queue = new ArrayDeque<>(groupIds);
+    while (!queue.isEmpty()) {
+      UUID groupId = queue.poll();
+      if (!descendants.add(groupId)) continue;
+      queue.addAll(this.childIds.getOrDefault(groupId, Collections.emptySet()));
+    }
+    return descendants;
+  }
+}
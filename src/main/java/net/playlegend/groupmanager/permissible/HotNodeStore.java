@@ -0,0 +1,52 @@
+package net.playlegend.groupmanager.permissible;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.util.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Persists the most frequently checked permission nodes, so that the result caches can be
+ * prewarmed with them right after a restart, before any player has checked anything.
+ */
+public class HotNodeStore {
+
+  private static final File HOT_NODES_FILE =
+      new File(FileUtil.PLUGIN_ROOT_DIRECTORY, "hot_nodes.json");
+
+  /**
+   * Loads the persisted permission nodes.
+   *
+   * @return the persisted nodes, most frequently checked first, or an empty list if there are none
+   */
+  public static List<String> load() {
+    if (!HOT_NODES_FILE.exists()) return List.of();
+    try {
+      return List.copyOf(
+          new ObjectMapper().readValue(HOT_NODES_FILE, new TypeReference<List<String>>() {}));
+    } catch (IOException e) {
+      GroupManagerPlugin.getInstance()
+          .log(Level.WARNING, "Failed to load frequently checked permission nodes.", e);
+      return List.of();
+    }
+  }
+
+  /**
+   * Persists permission nodes, replacing the previously persisted ones.
+   *
+   * @param nodes the nodes to persist, most frequently checked first
+   */
+  public static void save(List<String> nodes) {
+    try {
+      new ObjectMapper().writeValue(HOT_NODES_FILE, nodes);
+    } catch (IOException e) {
+      GroupManagerPlugin.getInstance()
+          .log(Level.WARNING, "Failed to save frequently checked permission nodes.", e);
+    }
+  }
+}
@@ -1,93 +1,682 @@
 package net.playlegend.groupmanager.permissible;
 
-import lombok.Getter;
 import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.config.GroupManagerConfig;
 import net.playlegend.groupmanager.datastore.DataAccessException;
 import net.playlegend.groupmanager.datastore.wrapper.GroupDao;
 import net.playlegend.groupmanager.datastore.wrapper.UserDao;
+import net.playlegend.groupmanager.datastore.wrapper.UserPermissionDao;
 import net.playlegend.groupmanager.model.Group;
-import net.playlegend.groupmanager.model.Permission;
 import net.playlegend.groupmanager.model.User;
+import net.playlegend.groupmanager.model.UserPermission;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
-import org.bukkit.permissions.PermissibleBase;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 /** Takes care of caching user/group permissions and permissible injection. */
 public class PermissibleManager {
 
-  @Getter
-  private final Map<Group, Set<Permission>> cachedGroupPermissions =
-      Collections.synchronizedMap(new HashMap<>());
+  private static final int SLOWEST_GROUPS_LOGGED = 5;
 
-  @Getter
-  private final Map<Group, Map<String, Boolean>> cachedGroupCheckedPermissions =
-      Collections.synchronizedMap(new HashMap<>());
+  private final AtomicReference<PermissionSnapshot> snapshot =
+      new AtomicReference<>(PermissionSnapshot.EMPTY);
 
-  @Getter
-  private final Map<UUID, Group> cachedPlayerGroups = Collections.synchronizedMap(new HashMap<>());
+  private final Object publishLock = new Object();
 
-  private Field permissibleField;
+  private final Set<UUID> departedPlayers = new HashSet<>();
+
+  private volatile PermissionNodeInterner nodeInterner = this.createNodeInterner();
+
+  private volatile PermissionTelemetry telemetry = this.createTelemetry(this.nodeInterner);
+
+  private volatile List<String> hotNodes = HotNodeStore.load();
+
+  private final Object hotNodesLock = new Object();
+
+  private List<String> savedHotNodes = this.hotNodes;
+
+  private volatile RegisteredPermissionIndex registeredPermissions =
+      RegisteredPermissionIndex.EMPTY;
+
+  private final Map<UUID, GmPermissible> injectedPermissibles = new ConcurrentHashMap<>();
+
+  private final Set<UUID> pendingPushes = new LinkedHashSet<>();
+
+  private volatile MethodHandle permissibleGetter;
+
+  private volatile MethodHandle permissibleSetter;
+
+  /**
+   * Returns the currently published permission snapshot. Never returns null.
+   *
+   * @return the current snapshot
+   */
+  public PermissionSnapshot getSnapshot() {
+    return this.snapshot.get();
+  }
 
   /**
-   * Creates/Recreates all caches. Inherently complex.
+   * Creates/Recreates all caches. The new state is built completely on the calling thread and then
+   * published at once, so permission checks keep being answered by the previous state meanwhile.
+   * Only groups whose permissions or parents have changed, and their descendants, are recompiled.
+   * All other groups keep their compiled permissions and checked permission results, unless the
+   * permissions registered with Bukkit have changed. Players having secondary groups share one
+   * compiled set per distinct group combination, which is only recompiled if one of its groups is.
    *
    * @throws DataAccessException if the cached could not be constructed due to database error
    */
-  public void createCaches() throws DataAccessException {
-    this.cachedPlayerGroups.clear();
-    this.cachedGroupPermissions.clear();
-    this.cachedGroupCheckedPermissions.clear();
+  public synchronized void createCaches() throws DataAccessException {
     List<Group> groupList = GroupDao.getAllGroups();
     if (groupList == null) return;
+    PermissionSnapshot previousSnapshot = this.snapshot.get();
+    GroupHierarchy hierarchy = new GroupHierarchy(groupList);
+    for (String cycle : hierarchy.getCycles()) {
+      GroupManagerPlugin.getInstance()
+          .log(
+              Level.WARNING,
+              "Inheritance cycle detected: "
+                  + cycle
+                  + ". All groups in the cycle share their permissions.");
+    }
+    Group defaultGroup = GroupManagerPlugin.getInstance().getDefaultGroup();
+
+    Set<UUID> changedGroupIds = new HashSet<>();
     for (Group g : Objects.requireNonNull(groupList)) {
-      Set<Permission> groupPerms = g.getPermissions();
-      cachedGroupPermissions.put(g, groupPerms);
+      CompiledPermissionSet previous = previousSnapshot.getCompiledGroups().get(g);
+      if (previous == null
+          || !previous.getOwnPermissionNodes().equals(hierarchy.getOwnPermissionNodes(g))
+          || !previous
+              .getOwnWorldPermissionNodes()
+              .equals(hierarchy.getOwnWorldPermissionNodes(g))
+          || !previous.getParentIds().equals(hierarchy.getParentIds(g))) {
+        changedGroupIds.add(g.getId());
+      }
     }
+    Set<UUID> dirtyGroupIds = hierarchy.getDescendantIds(changedGroupIds);
+    // the default group is not known yet while it is being created on an empty database
+    Set<String> defaultPermissionNodes =
+        defaultGroup == null ? Set.of() : hierarchy.getEffectivePermissionNodes(defaultGroup);
+    Map<String, Set<String>> defaultWorldPermissionNodes =
+        defaultGroup == null
+            ? Map.of()
+            : hierarchy.getEffectiveWorldPermissionNodes(defaultGroup);
+    // every group inherits from the default group
+    boolean recompileAll =
+        !defaultPermissionNodes.equals(previousSnapshot.getDefaultPermissionNodes())
+            || !defaultWorldPermissionNodes.equals(
+                previousSnapshot.getDefaultWorldPermissionNodes());
+    // collected before the interner might be replaced, as the frequencies are lost afterwards
+    this.hotNodes = this.collectHotNodes();
+    if (this.nodeInterner.isFull()) {
+      // start over with fresh ids, so every group needs a new result cache
+      this.nodeInterner = this.createNodeInterner();
+      this.telemetry = this.createTelemetry(this.nodeInterner);
+      recompileAll = true;
+    }
+    RegisteredPermissionIndex registeredPermissions =
+        new RegisteredPermissionIndex(Bukkit.getPluginManager().getPermissions());
+    if (!registeredPermissions.isEquivalent(this.registeredPermissions)) {
+      this.registeredPermissions = registeredPermissions;
+      recompileAll = true;
+    }
+
+    long compileStart = System.nanoTime();
+    // groups are compiled independently of each other, one fork/join task per group
+    hierarchy.resolveAll();
+    Map<Group, CompiledPermissionSet> compiledGroups = new HashMap<>();
+    Map<Group, ForkJoinTask<CompiledPermissionSet>> compileTasks = new HashMap<>();
+    for (Group g : groupList) {
+      CompiledPermissionSet previous = previousSnapshot.getCompiledGroups().get(g);
+      if (previous != null && !recompileAll && !dirtyGroupIds.contains(g.getId())) {
+        compiledGroups.put(g, previous);
+      } else {
+        compileTasks.put(
+            g,
+            ForkJoinPool.commonPool()
+                .submit(
+                    () ->
+                        this.compileGroup(
+                            g, hierarchy, defaultPermissionNodes, defaultWorldPermissionNodes)));
+      }
+    }
+    compileTasks.forEach((g, task) -> compiledGroups.put(g, task.join()));
+    long compileTime = System.nanoTime() - compileStart;
+    this.logCompileTimes(compileTasks.keySet(), compiledGroups, compileTime);
+
+    Map<UUID, Set<UUID>> playerCombinations = new HashMap<>();
+    Map<Set<UUID>, CompiledPermissionSet> compiledCombinations = new HashMap<>();
     List<User> onlineUsers = UserDao.getOnlineUsers();
     for (User user : Objects.requireNonNull(onlineUsers)) {
-      this.cacheUserData(user);
+      Set<UUID> combination = getGroupCombination(user);
+      playerCombinations.put(user.getUuid(), combination);
+      if (compiledCombinations.containsKey(combination)) continue;
+      List<Group> groups = getMemberGroups(user);
+      CompiledPermissionSet previous = previousSnapshot.getCompiledCombinations().get(combination);
+      if (groups.size() == 1) {
+        // a single group is its own combination, so share the compiled group
+        compiledCombinations.put(
+            combination,
+            compiledGroups.computeIfAbsent(
+                user.getGroup(),
+                g ->
+                    this.compileStandalone(
+                        List.of(g), defaultPermissionNodes, defaultWorldPermissionNodes)));
+      } else if (!compiledGroups.keySet().containsAll(groups)) {
+        compiledCombinations.put(
+            combination,
+            this.compileStandalone(groups, defaultPermissionNodes, defaultWorldPermissionNodes));
+      } else if (previous != null
+          && !recompileAll
+          && Collections.disjoint(combination, dirtyGroupIds)) {
+        compiledCombinations.put(combination, previous);
+      } else {
+        compiledCombinations.put(
+            combination,
+            this.compileCombination(
+                groups, hierarchy, defaultPermissionNodes, defaultWorldPermissionNodes));
+      }
     }
-    GroupManagerPlugin.getInstance().log(Level.INFO, "Permissions caches rebuilt.");
+    Map<UUID, List<UserPermission>> overridesByPlayer = new HashMap<>();
+    for (UserPermission override : UserPermissionDao.getOnlineUserPermissions()) {
+      overridesByPlayer
+          .computeIfAbsent(override.getUser().getUuid(), uuid -> new ArrayList<>())
+          .add(override);
+    }
+    Map<UUID, PermissionDelta> playerDeltas = new HashMap<>();
+    overridesByPlayer.forEach(
+        (uuid, overrides) ->
+            playerDeltas.put(uuid, new PermissionDelta(overrides, this.registeredPermissions)));
+    synchronized (this.publishLock) {
+      // players who have left during the rebuild must not be brought back by it
+      for (UUID uuid : this.departedPlayers) {
+        playerCombinations.remove(uuid);
+        playerDeltas.remove(uuid);
+      }
+      this.departedPlayers.clear();
+      compiledCombinations.keySet().retainAll(new HashSet<>(playerCombinations.values()));
+      this.snapshot.set(
+          new PermissionSnapshot(
+              playerCombinations,
+              compiledGroups,
+              compiledCombinations,
+              playerDeltas,
+              defaultPermissionNodes,
+              defaultWorldPermissionNodes));
+    }
+    this.resolveAllPermissibles();
+    this.saveHotNodes();
+    GroupManagerPlugin.getInstance()
+        .log(
+            Level.INFO,
+            "Permissions caches rebuilt. ("
+                + (recompileAll ? groupList.size() : dirtyGroupIds.size())
+                + " of "
+                + groupList.size()
+                + " groups recompiled, "
+                + compiledCombinations.size()
+                + " group combinations in use)");
   }
 
   /**
-   * Caches a users' data to reduce complexity when actually checking permissions.
+   * Logs the time it took to compile the given groups, along with the groups which took longest to
+   * compile, so expensive groups can be identified.
+   *
+   * @param compiled the groups which have been compiled
+   * @param compiledGroups the compiled permissions of all groups
+   * @param compileTime the wall time it took to compile all groups, in nanoseconds
+   */
+  private void logCompileTimes(
+      Collection<Group> compiled,
+      Map<Group, CompiledPermissionSet> compiledGroups,
+      long compileTime) {
+    if (compiled.isEmpty()) return;
+    StringBuilder slowest = new StringBuilder();
+    compiled.stream()
+        .sorted(
+            Comparator.comparingLong((Group g) -> compiledGroups.get(g).getCompileTimeNanos())
+                .reversed())
+        .limit(SLOWEST_GROUPS_LOGGED)
+        .forEach(
+            g ->
+                slowest
+                    .append(slowest.length() == 0 ? "" : ", ")
+                    .append(g.getName())
+                    .append(": ")
+                    .append(compiledGroups.get(g).getCompileTimeNanos() / 1_000_000)
+                    .append(" ms"));
+    GroupManagerPlugin.getInstance()
+        .log(
+            Level.INFO,
+            "Compiled "
+                + compiled.size()
+                + " groups in "
+                + compileTime / 1_000_000
+                + " ms. (Slowest: "
+                + slowest
+                + ")");
+  }
+
+  /**
+   * Caches a users' data to reduce complexity when actually checking permissions. The users'
+   * permission overrides are loaded here, as they are only kept for online players. Holds the same
+   * monitor as {@link #createCaches()}, so a rebuild can neither drop nor overwrite the player.
    *
    * @param user the user whose data is to be cached
+   * @throws DataAccessException if the users' permission overrides could not be loaded
    */
-  public void cacheUserData(User user) {
-    cachedGroupPermissions.remove(user.getGroup());
-    cachedGroupPermissions.put(user.getGroup(), user.getGroup().getPermissions());
-    cachedPlayerGroups.remove(user.getUuid());
-    cachedPlayerGroups.put(user.getUuid(), user.getGroup());
+  public synchronized void cacheUserData(User user) throws DataAccessException {
+    Set<UUID> combination = getGroupCombination(user);
+    List<Group> groups = getMemberGroups(user);
+    PermissionDelta delta =
+        new PermissionDelta(
+            UserPermissionDao.getUserPermissions(user.getUuid()), this.registeredPermissions);
+    PermissionSnapshot current = this.snapshot.get();
+    CompiledPermissionSet compiledCombination = current.getCompiledCombinations().get(combination);
+    if (compiledCombination == null && groups.size() == 1) {
+      compiledCombination = current.getCompiledGroups().get(groups.get(0));
+    }
+    if (compiledCombination == null) {
+      compiledCombination =
+          this.compileStandalone(
+              groups,
+              current.getDefaultPermissionNodes(),
+              current.getDefaultWorldPermissionNodes());
+    }
+    synchronized (this.publishLock) {
+      this.departedPlayers.remove(user.getUuid());
+      this.snapshot.set(
+          this.snapshot.get().withPlayer(user.getUuid(), combination, compiledCombination, delta));
+    }
+    this.resolvePermissible(user.getUuid());
   }
 
   /**
-   * Injects a permissible proxy object into a players CraftHumanEntity in order to intercept
-   * #hasPermission() invocations.
+   * Returns the ids of all groups of a user, used as the key of the users' group combination.
    *
-   * @param player the player to inject into
-   * @throws ClassNotFoundException if the CraftHumanEntity class could not be found -> possibly
-   *     look for a more generic approach
-   * @throws NoSuchFieldException if the permissible field inside CraftHumanEntity could not be
-   *     found. -> possibly look for a more generic approach
-   * @throws IllegalAccessException if the permissible field could not be accessed
-   */
-  public void injectPermissible(Player player)
-      throws ClassNotFoundException, NoSuchFieldException, IllegalAccessException {
-    Class<?> craftPlayerClass = player.getClass();
+   * @param user the user whose groups to collect
+   * @return the ids of the users' primary and secondary groups
+   */
+  private static Set<UUID> getGroupCombination(User user) {
+    Set<UUID> combination = new HashSet<>();
+    for (Group group : getMemberGroups(user)) {
+      combination.add(group.getId());
+    }
+    return Set.copyOf(combination);
+  }
+
+  /**
+   * Returns all groups of a user, starting with the primary group. Users are loaded without the
+   * associations of their groups, so the complete groups are looked up in the registry.
+   *
+   * @param user the user whose groups to collect
+   * @return the users' primary and secondary groups, without duplicates
+   */
+  private static List<Group> getMemberGroups(User user) {
+    Set<Group> groups = new LinkedHashSet<>();
+    groups.add(getRegisteredGroup(user.getGroup()));
+    if (user.getSecondaryGroups() != null) {
+      user.getSecondaryGroups().forEach(group -> groups.add(getRegisteredGroup(group)));
+    }
+    return new ArrayList<>(groups);
+  }
+
+  private static Group getRegisteredGroup(Group group) {
+    Group registered = GroupDao.getGroup(group.getId());
+    return registered != null ? registered : group;
+  }
+
+  /**
+   * Points the permissible of an online player to the players' state in the current snapshot.
+   * Writers are serialized, so a permissible can never be pointed to an outdated state.
+   *
+   * @param uuid the players' UUID
+   */
+  private void resolvePermissible(UUID uuid) {
+    synchronized (this.injectedPermissibles) {
+      GmPermissible permissible = this.injectedPermissibles.get(uuid);
+      if (permissible != null) {
+        this.resolvePermissible(this.snapshot.get(), uuid, permissible);
+      }
+    }
+  }
+
+  /** Points the permissibles of all online players to their state in the current snapshot. */
+  private void resolveAllPermissibles() {
+    synchronized (this.injectedPermissibles) {
+      PermissionSnapshot currentSnapshot = this.snapshot.get();
+      this.injectedPermissibles.forEach(
+          (uuid, permissible) -> this.resolvePermissible(currentSnapshot, uuid, permissible));
+    }
+  }
+
+  private void resolvePermissible(
+      PermissionSnapshot currentSnapshot, UUID uuid, GmPermissible permissible) {
+    CompiledPermissionSet compiledPermissions = currentSnapshot.getCompiledPermissions(uuid);
+    PermissionDelta delta = currentSnapshot.getPermissionDelta(uuid);
+    ResolvedPermissions current = permissible.getResolvedPermissions();
+    if (current.getCompiledPermissions() == compiledPermissions
+        && current.getPermissionDelta() == delta) {
+      return;
+    }
+    permissible.setResolvedPermissions(
+        compiledPermissions == null && delta.isEmpty()
+            ? ResolvedPermissions.NONE
+            : new ResolvedPermissions(compiledPermissions, delta, permissible.getWorld()));
+    // recompiled sets with the same rules do not change anything the client could notice
+    boolean compiledChanged =
+        compiledPermissions == null
+            ? current.getCompiledPermissions() != null
+            : !compiledPermissions.isEquivalent(current.getCompiledPermissions());
+    if (compiledChanged || !delta.isEquivalent(current.getPermissionDelta())) {
+      this.schedulePush(uuid);
+    }
+  }
+
+  /**
+   * Schedules a player to be told about changed permissions by the {@link
+   * net.playlegend.groupmanager.tasks.TaskPermissionPush}.
+   *
+   * @param uuid the players' UUID
+   */
+  private void schedulePush(UUID uuid) {
+    synchronized (this.pendingPushes) {
+      this.pendingPushes.add(uuid);
+    }
+  }
+
+  /**
+   * Recalculates the permissions and resends the command tree of players whose permissions have
+   * changed. At most the given amount of players is handled per call, the remaining ones are left
+   * for the next call, so large changes are spread across several ticks. Players whose permissions
+   * did not change are never touched. Must be called on the main thread.
+   *
+   * @param limit the maximum amount of players to handle
+   */
+  public void pushPendingPermissions(int limit) {
+    List<UUID> batch = new ArrayList<>();
+    synchronized (this.pendingPushes) {
+      Iterator<UUID> iterator = this.pendingPushes.iterator();
+      while (iterator.hasNext() && batch.size() < limit) {
+        batch.add(iterator.next());
+        iterator.remove();
+      }
+    }
+    for (UUID uuid : batch) {
+      Player player = Bukkit.getPlayer(uuid);
+      if (player == null) continue;
+      player.recalculatePermissions();
+      player.updateCommands();
+    }
+  }
+
+  /**
+   * Compiles the permissions of a group, merged with the permissions of its ancestors and the
+   * default group, so that permission checks do not have to scan the permission set.
+   *
+   * @param group the group to compile
+   * @param hierarchy the hierarchy used to resolve inherited permissions
+   * @param defaultPermissionNodes the effective permission nodes of the default group
+   * @param defaultWorldPermissionNodes the effective world scoped nodes of the default group
+   * @return the compiled permission set
+   */
+  private CompiledPermissionSet compileGroup(
+      Group group,
+      GroupHierarchy hierarchy,
+      Set<String> defaultPermissionNodes,
+      Map<String, Set<String>> defaultWorldPermissionNodes) {
+    return this.compile(
+        List.of(group),
+        hierarchy.getOwnPermissionNodes(group),
+        hierarchy.getParentIds(group),
+        hierarchy.getOwnWorldPermissionNodes(group),
+        hierarchy,
+        defaultPermissionNodes,
+        defaultWorldPermissionNodes);
+  }
+
+  /**
+   * Compiles the union of the permissions of several groups, merged with the permissions of their
+   * ancestors and the default group. The result is shared by all players having exactly these
+   * groups.
+   *
+   * @param groups the groups of the combination
+   * @param hierarchy the hierarchy used to resolve inherited permissions
+   * @param defaultPermissionNodes the effective permission nodes of the default group
+   * @param defaultWorldPermissionNodes the effective world scoped nodes of the default group
+   * @return the compiled permission set
+   */
+  private CompiledPermissionSet compileCombination(
+      Collection<Group> groups,
+      GroupHierarchy hierarchy,
+      Set<String> defaultPermissionNodes,
+      Map<String, Set<String>> defaultWorldPermissionNodes) {
+    return this.compile(
+        groups,
+        Set.of(),
+        Set.of(),
+        Map.of(),
+        hierarchy,
+        defaultPermissionNodes,
+        defaultWorldPermissionNodes);
+  }
+
+  private CompiledPermissionSet compile(
+      Collection<Group> groups,
+      Set<String> ownPermissionNodes,
+      Set<UUID> parentIds,
+      Map<String, Set<String>> ownWorldPermissionNodes,
+      GroupHierarchy hierarchy,
+      Set<String> defaultPermissionNodes,
+      Map<String, Set<String>> defaultWorldPermissionNodes) {
+    Set<String> combinedNodes = new HashSet<>(defaultPermissionNodes);
+    Map<String, Set<String>> combinedWorldNodes = new HashMap<>();
+    defaultWorldPermissionNodes.forEach(
+        (world, nodes) -> combinedWorldNodes.put(world, new HashSet<>(nodes)));
+    for (Group group : groups) {
+      combinedNodes.addAll(hierarchy.getEffectivePermissionNodes(group));
+      hierarchy
+          .getEffectiveWorldPermissionNodes(group)
+          .forEach(
+              (world, nodes) ->
+                  combinedWorldNodes.computeIfAbsent(world, k -> new HashSet<>()).addAll(nodes));
+    }
+    CompiledPermissionSet compiled =
+        new CompiledPermissionSet(
+            combinedNodes,
+            ownPermissionNodes,
+            parentIds,
+            combinedWorldNodes,
+            ownWorldPermissionNodes,
+            this.registeredPermissions,
+            this.nodeInterner,
+            this.telemetry,
+            GroupManagerPlugin.getInstance()
+                .getGroupManagerConfig()
+                .getCheckedPermissionCacheSize());
+    // happens before the set is published, so the first checks against it are already cached
+    compiled.prewarm(this.hotNodes);
+    return compiled;
+  }
+
+  /**
+   * Returns the permission nodes to prewarm newly compiled sets with. These are the most
+   * frequently checked nodes of the current interner or, if nothing has been checked yet, the ones
+   * persisted before the last restart.
+   *
+   * @return the nodes to prewarm, most frequently checked first
+   */
+  private List<String> collectHotNodes() {
+    GroupManagerConfig config = GroupManagerPlugin.getInstance().getGroupManagerConfig();
+    int limit = Math.min(config.getPrewarmNodeCount(), config.getCheckedPermissionCacheSize());
+    List<String> nodes = this.nodeInterner.getMostFrequentNodes(limit);
+    return nodes.isEmpty() ? this.hotNodes : nodes;
+  }
+
+  /**
+   * Persists the most frequently checked permission nodes, so the caches can be prewarmed with
+   * them after a restart. Does nothing if they have not changed since they were last persisted.
+   */
+  public void saveHotNodes() {
+    List<String> nodes = this.collectHotNodes();
+    synchronized (this.hotNodesLock) {
+      if (nodes.equals(this.savedHotNodes)) return;
+      HotNodeStore.save(nodes);
+      this.savedHotNodes = nodes;
+    }
+  }
+
+  /**
+   * Returns the telemetry recording the permission checks answered by the current caches. Node
+   * statistics start over whenever the node ids are reassigned.
+   *
+   * @return the current telemetry
+   */
+  public PermissionTelemetry getTelemetry() {
+    return this.telemetry;
+  }
+
+  private PermissionTelemetry createTelemetry(PermissionNodeInterner nodeInterner) {
+    GroupManagerConfig config = GroupManagerPlugin.getInstance().getGroupManagerConfig();
+    return new PermissionTelemetry(
+        nodeInterner, config.getTelemetryLatencySampleRate(), config.getTelemetryTopNodes());
+  }
+
+  private PermissionNodeInterner createNodeInterner() {
+    return new PermissionNodeInterner(
+        GroupManagerPlugin.getInstance().getGroupManagerConfig().getPermissionNodeLimit());
+  }
+
+  /**
+   * Compiles a group or group combination which is not part of the current caches, resolving the
+   * ancestors using the parents loaded along with the groups themselves.
+   *
+   * @param groups the groups to compile, a single group is compiled as a group of its own
+   * @param defaultPermissionNodes the effective permission nodes of the default group
+   * @param defaultWorldPermissionNodes the effective world scoped nodes of the default group
+   * @return the compiled permission set
+   */
+  private CompiledPermissionSet compileStandalone(
+      List<Group> groups,
+      Set<String> defaultPermissionNodes,
+      Map<String, Set<String>> defaultWorldPermissionNodes) {
+    Map<UUID, Group> ancestors = new HashMap<>();
+    Deque<Group> queue = new ArrayDeque<>(groups);
+    while (!queue.isEmpty()) {
+      Group current = getRegisteredGroup(queue.poll());
+      if (ancestors.putIfAbsent(current.getId(), current) != null) continue;
+      if (current.getParents() != null) queue.addAll(current.getParents());
+    }
+    GroupHierarchy hierarchy = new GroupHierarchy(ancestors.values());
+    if (groups.size() == 1) {
+      return this.compileGroup(
+          groups.get(0), hierarchy, defaultPermissionNodes, defaultWorldPermissionNodes);
+    }
+    return this.compileCombination(
+        groups, hierarchy, defaultPermissionNodes, defaultWorldPermissionNodes);
+  }
+
+  /**
+   * Locates the permissible field inside CraftHumanEntity and creates handles to read and write it.
+   * Must be called once while enabling, so that a server version without a compatible field is
+   * detected right away and not on every join.
+   *
+   * @throws ReflectiveOperationException if the CraftHumanEntity class or its permissible field
+   *     could not be found, has an incompatible type or could not be made writable
+   */
+  public void initializeInjection() throws ReflectiveOperationException {
     Class<?> humanEntityClass =
-        Class.forName(craftPlayerClass.getPackage().getName() + ".CraftHumanEntity");
-    if (permissibleField == null) {
-      this.permissibleField = humanEntityClass.getDeclaredField("perm");
-      this.permissibleField.setAccessible(true);
+        Class.forName(
+            Bukkit.getServer().getClass().getPackage().getName() + ".entity.CraftHumanEntity");
+    Field field = humanEntityClass.getDeclaredField("perm");
+    if (!field.getType().isAssignableFrom(GmPermissible.class)) {
+      throw new NoSuchFieldException(
+          "Field perm of " + humanEntityClass.getName() + " has type " + field.getType().getName());
     }
-    PermissibleBase currentPermissible = (PermissibleBase) this.permissibleField.get(player);
-    if (currentPermissible instanceof GmPermissible) return;
+    // the field is final, only a setter unreflected from an accessible field may write to it
+    field.setAccessible(true);
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    MethodHandle getter = lookup.unreflectGetter(field);
+    MethodHandle setter = lookup.unreflectSetter(field);
+    this.permissibleGetter = getter;
+    this.permissibleSetter = setter;
+  }
+
+  /**
+   * Injects a permissible proxy object into a players CraftHumanEntity in order to intercept
+   * #hasPermission() invocations. Does nothing if the injection could not be initialized or the
+   * player already has an injected permissible. If the permissible cannot be written, injection is
+   * disabled for all further players instead of failing again on every join.
+   *
+   * @param player the player to inject into
+   * @throws IllegalStateException if the permissible could not be injected
+   */
+  public void injectPermissible(Player player) {
+    MethodHandle getter = this.permissibleGetter;
+    MethodHandle setter = this.permissibleSetter;
+    if (getter == null || setter == null) return;
     GmPermissible gmPermissible = new GmPermissible(player);
-    this.permissibleField.set(player, gmPermissible);
+    gmPermissible.setWorld(player.getWorld().getName());
+    try {
+      if (getter.invoke(player) instanceof GmPermissible) return;
+      setter.invoke(player, gmPermissible);
+      if (getter.invoke(player) != gmPermissible) {
+        throw new IllegalStateException("Injected permissible was not retained");
+      }
+    } catch (Throwable e) {
+      this.permissibleGetter = null;
+      this.permissibleSetter = null;
+      throw new IllegalStateException(
+          "Failed to inject permissible, group permissions will not be applied", e);
+    }
+    this.injectedPermissibles.put(player.getUniqueId(), gmPermissible);
+    this.resolvePermissible(player.getUniqueId());
+  }
+
+  /**
+   * Points the permissible of a player to the precompiled permissions of the players' current
+   * world. Neither queries the database nor rebuilds any cache.
+   *
+   * @param player the player who has changed worlds
+   */
+  public void changeWorld(Player player) {
+    synchronized (this.injectedPermissibles) {
+      GmPermissible permissible = this.injectedPermissibles.get(player.getUniqueId());
+      if (permissible == null) return;
+      String previousWorld = permissible.getWorld();
+      permissible.setWorld(player.getWorld().getName());
+      CompiledPermissionSet compiledPermissions =
+          permissible.getResolvedPermissions().getCompiledPermissions();
+      if (compiledPermissions != null
+          && compiledPermissions.getWorldPermissions(previousWorld)
+              != compiledPermissions.getWorldPermissions(permissible.getWorld())) {
+        this.schedulePush(player.getUniqueId());
+      }
+    }
+  }
+
+  /**
+   * Forgets the permissible and the cached permissions of a player who has left the server.
+   *
+   * @param player the player who has left
+   */
+  public void removePermissible(Player player) {
+    this.injectedPermissibles.remove(player.getUniqueId());
+    // does not wait for a running rebuild, which drops the player once it publishes
+    synchronized (this.publishLock) {
+      this.departedPlayers.add(player.getUniqueId());
+      this.snapshot.set(this.snapshot.get().withoutPlayer(player.getUniqueId()));
+    }
+    synchronized (this.pendingPushes) {
+      this.pendingPushes.remove(player.getUniqueId());
+    }
   }
 }
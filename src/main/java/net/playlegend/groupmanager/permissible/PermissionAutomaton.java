@@ -0,0 +1,313 @@
+package net.playlegend.groupmanager.permissible;
+
+import java.util.*;
+
+/**
+ * Deterministic, case-insensitive segment automaton compiled from a set of permission rules. A rule
+ * is a permission node whose segments are either literals or "*". A "*" in the middle of a rule
+ * matches exactly one segment, a trailing "*" matches one or more segments, so "*" on its own
+ * matches every node. Rules prefixed with "-" deny the permissions they match.
+ *
+ * <p>If several rules match the same node, the most specific one wins: comparing the rules
+ * segment by segment, a literal beats a "*" in the middle, which beats a trailing "*". If two rules
+ * are equally specific, the denying rule wins.
+ *
+ * <p>All rules are merged into one automaton with a single transition per segment and the winning
+ * rule precomputed for every state, so a lookup only depends on the length of the checked node, not
+ * on the amount of rules. Once compiled, the automaton is never modified again and may be shared
+ * between threads freely. Lookups do not allocate.
+ */
+public class PermissionAutomaton {
+
+  private static final int LITERAL = 2;
+  private static final int SINGLE = 1;
+  private static final int REST = 0;
+
+  private final State root;
+
+  /**
+   * Compiles a new automaton.
+   *
+   * @param rules the permission rules to compile into this automaton
+   */
+  public PermissionAutomaton(Collection<String> rules) {
+    List<Rule> parsedRules = new ArrayList<>();
+    for (String rule : rules) {
+      if (rule == null) continue;
+      boolean value = !rule.startsWith("-");
+      String node = value ? rule : rule.substring(1);
+      if (!node.isEmpty()) parsedRules.add(new Rule(node.toLowerCase(Locale.ROOT), value));
+    }
+    // most specific first, so the first matching rule of a state always wins
+    parsedRules.sort(Rule::compareByPrecedence);
+    this.root = new Compiler(parsedRules.toArray(new Rule[0])).compile();
+  }
+
+  /**
+   * Looks up the value of the most specific rule matching a permission node.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is granted, false if it is denied or null if no rule matches
+   */
+  public Boolean getValue(String permission) {
+    int length = permission.length();
+    // no one can have an empty permission
+    if (length == 0) return null;
+    State state = this.root;
+    int start = 0;
+    while (true) {
+      int end = permission.indexOf('.', start);
+      if (end == -1) end = length;
+      state = state.getNext(permission, start, end);
+      if (state == null) return null;
+      if (end == length || state.decided) return state.value;
+      start = end + 1;
+    }
+  }
+
+  /**
+   * Checks whether a permission node is granted by this automaton.
+   *
+   * @param permission the permission node to check
+   * @return true if the most specific rule matching the permission grants it, false otherwise
+   */
+  public boolean matches(String permission) {
+    return Boolean.TRUE.equals(this.getValue(permission));
+  }
+
+  /**
+   * Computes a case-insensitive hash of a segment without creating a substring.
+   *
+   * @param s the string containing the segment
+   * @param start the index the segment starts at (inclusive)
+   * @param end the index the segment ends at (exclusive)
+   * @return the hash of the segment
+   */
+  private static int hashSegment(String s, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Character.toLowerCase(s.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  /** A parsed permission rule. */
+  private static final class Rule {
+
+    private final String[] segments;
+    private final int[] kinds;
+    private final boolean value;
+
+    private Rule(String node, boolean value) {
+      this.segments = node.split("\\.", -1);
+      this.kinds = new int[this.segments.length];
+      for (int i = 0; i < this.segments.length; i++) {
+        if (!this.segments[i].equals("*")) {
+          this.kinds[i] = LITERAL;
+        } else {
+          this.kinds[i] = i == this.segments.length - 1 ? REST : SINGLE;
+        }
+      }
+      this.value = value;
+    }
+
+    private boolean endsWithRest() {
+      return this.kinds[this.kinds.length - 1] == REST;
+    }
+
+    /**
+     * Orders rules by precedence. Only rules that can match the same node are ever compared in a
+     * meaningful way, for those the order is exactly the precedence described in the class doc.
+     */
+    private static int compareByPrecedence(Rule a, Rule b) {
+      int length = Math.min(a.kinds.length, b.kinds.length);
+      for (int i = 0; i < length; i++) {
+        if (a.kinds[i] != b.kinds[i]) return Integer.compare(b.kinds[i], a.kinds[i]);
+        if (a.kinds[i] == REST) break;
+      }
+      if (a.kinds.length != b.kinds.length) return Integer.compare(b.kinds.length, a.kinds.length);
+      return Boolean.compare(a.value, b.value);
+    }
+  }
+
+  /**
+   * Builds the automaton using the subset construction. Every state stands for the set of rules
+   * that may still match, together with how many segments of each rule have been matched so far.
+   */
+  private static final class Compiler {
+
+    private final Rule[] rules;
+    private final Map<ItemSet, State> states = new HashMap<>();
+    private final Deque<ItemSet> pending = new ArrayDeque<>();
+
+    private Compiler(Rule[] rules) {
+      this.rules = rules;
+    }
+
+    private State compile() {
+      long[] initial = new long[this.rules.length];
+      for (int i = 0; i < this.rules.length; i++) {
+        initial[i] = item(i, 0);
+      }
+      State root = this.getOrCreate(new ItemSet(initial));
+      while (!this.pending.isEmpty()) {
+        ItemSet itemSet = this.pending.poll();
+        State state = this.states.get(itemSet);
+        Set<String> literals = new HashSet<>();
+        for (long item : itemSet.items) {
+          Rule rule = this.rules[ruleIndex(item)];
+          int position = position(item);
+          if (position < rule.kinds.length && rule.kinds[position] == LITERAL) {
+            literals.add(rule.segments[position]);
+          }
+        }
+        for (String literal : literals) {
+          state.put(literal, this.getOrCreate(this.advance(itemSet, literal)));
+        }
+        state.otherwise = this.getOrCreate(this.advance(itemSet, null));
+      }
+      return root;
+    }
+
+    /**
+     * Computes the items reached by consuming one segment.
+     *
+     * @param itemSet the current items
+     * @param segment the consumed segment or null if it does not equal any literal of the items
+     * @return the reached items
+     */
+    private ItemSet advance(ItemSet itemSet, String segment) {
+      long[] next = new long[itemSet.items.length];
+      int size = 0;
+      for (long item : itemSet.items) {
+        int ruleIndex = ruleIndex(item);
+        Rule rule = this.rules[ruleIndex];
+        int position = position(item);
+        if (position == rule.kinds.length) {
+          // a trailing wildcard which has already matched keeps matching
+          if (rule.endsWithRest()) next[size++] = item;
+        } else if (rule.kinds[position] == REST) {
+          next[size++] = item(ruleIndex, rule.kinds.length);
+        } else if (rule.kinds[position] == SINGLE || rule.segments[position].equals(segment)) {
+          next[size++] = item(ruleIndex, position + 1);
+        }
+      }
+      return new ItemSet(Arrays.copyOf(next, size));
+    }
+
+    private State getOrCreate(ItemSet itemSet) {
+      if (itemSet.items.length == 0) return null;
+      State state = this.states.get(itemSet);
+      if (state != null) return state;
+      state = new State();
+      // items are ordered by rule index, so the first completed rule is the most specific one
+      boolean decided = true;
+      for (long item : itemSet.items) {
+        Rule rule = this.rules[ruleIndex(item)];
+        boolean completed = position(item) == rule.kinds.length;
+        if (completed && state.value == null) state.value = rule.value;
+        if (!completed || !rule.endsWithRest()) decided = false;
+      }
+      // only matched trailing wildcards are left, further segments cannot change the result
+      state.decided = decided;
+      this.states.put(itemSet, state);
+      if (!decided) this.pending.add(itemSet);
+      return state;
+    }
+
+    private static long item(int ruleIndex, int position) {
+      return ((long) ruleIndex << 32) | position;
+    }
+
+    private static int ruleIndex(long item) {
+      return (int) (item >>> 32);
+    }
+
+    private static int position(long item) {
+      return (int) item;
+    }
+  }
+
+  /** Sorted set of items identifying a state while compiling. */
+  private static final class ItemSet {
+
+    private final long[] items;
+    private final int hash;
+
+    private ItemSet(long[] items) {
+      this.items = items;
+      this.hash = Arrays.hashCode(items);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof ItemSet && Arrays.equals(this.items, ((ItemSet) obj).items);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  /**
+   * A single state, holding its transitions in an open-addressing table keyed by segment. Segments
+   * without a transition of their own lead to the state in {@code otherwise}.
+   */
+  private static final class State {
+
+    private String[] keys;
+    private State[] children;
+    private int size;
+    private State otherwise;
+    private Boolean value;
+    private boolean decided;
+
+    private State getNext(String s, int start, int end) {
+      if (this.keys == null) return this.otherwise;
+      int length = end - start;
+      int mask = this.keys.length - 1;
+      int index = hashSegment(s, start, end) & mask;
+      String key;
+      while ((key = this.keys[index]) != null) {
+        if (key.length() == length && key.regionMatches(true, 0, s, start, length)) {
+          return this.children[index];
+        }
+        index = (index + 1) & mask;
+      }
+      return this.otherwise;
+    }
+
+    private void put(String key, State child) {
+      if (this.keys == null) {
+        this.keys = new String[4];
+        this.children = new State[4];
+      } else if ((this.size + 1) * 2 > this.keys.length) {
+        this.resize();
+      }
+      this.insert(key, child);
+    }
+
+    private void insert(String key, State child) {
+      int mask = this.keys.length - 1;
+      int index = hashSegment(key, 0, key.length()) & mask;
+      while (this.keys[index] != null) {
+        index = (index + 1) & mask;
+      }
+      this.keys[index] = key;
+      this.children[index] = child;
+      this.size++;
+    }
+
+    private void resize() {
+      String[] oldKeys = this.keys;
+      State[] oldChildren = this.children;
+      this.keys = new String[oldKeys.length * 2];
+      this.children = new State[oldKeys.length * 2];
+      this.size = 0;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldKeys[i] != null) this.insert(oldKeys[i], oldChildren[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package net.playlegend.groupmanager.permissible;
+
+import net.playlegend.groupmanager.model.UserPermission;
+
+import java.util.*;
+
+/**
+ * Immutable, sorted set of the permission overrides of a single player, applied on top of the
+ * compiled permissions of the players' group. Exact nodes are found using a binary search, wildcard
+ * nodes are kept apart and only scanned if there are any. Overrides past their expiry date are
+ * ignored.
+ */
+public class PermissionDelta {
+
+  /** Delta of players without any overrides. */
+  public static final PermissionDelta EMPTY =
+      new PermissionDelta(Collections.emptyList(), RegisteredPermissionIndex.EMPTY);
+
+  private final String[] nodes;
+
+  private final boolean[] values;
+
+  private final long[] validUntil;
+
+  private final String[] wildcardPrefixes;
+
+  private final boolean[] wildcardValues;
+
+  private final long[] wildcardValidUntil;
+
+  /**
+   * Creates a new delta. Children of overridden registered permissions are overridden as well,
+   * unless they are overridden explicitly.
+   *
+   * @param overrides the overrides of the player
+   * @param registeredPermissions the permissions registered with Bukkit
+   */
+  public PermissionDelta(
+      Collection<UserPermission> overrides, RegisteredPermissionIndex registeredPermissions) {
+    Map<String, Node> exact = new HashMap<>();
+    List<Node> wildcards = new ArrayList<>();
+    for (UserPermission userPermission : overrides) {
+      String node = userPermission.getPermission().toLowerCase(Locale.ROOT);
+      Node override =
+          new Node(node, userPermission.isGranted(), userPermission.getValidUntil());
+      if (node.equals("*") || node.endsWith(".*")) {
+        wildcards.add(override);
+      } else {
+        exact.put(node, override);
+      }
+    }
+    Map<String, Node> children = new HashMap<>();
+    for (Node override : exact.values()) {
+      int index = registeredPermissions.indexOf(override.node);
+      if (index != -1) {
+        this.expandChildren(
+            registeredPermissions.getChildren(index),
+            !override.value,
+            override.validUntil,
+            registeredPermissions,
+            children,
+            new HashSet<>());
+      }
+    }
+    children.forEach(exact::putIfAbsent);
+
+    String[] sortedNodes = exact.keySet().toArray(new String[0]);
+    Arrays.sort(sortedNodes, String.CASE_INSENSITIVE_ORDER);
+    this.nodes = sortedNodes;
+    this.values = new boolean[sortedNodes.length];
+    this.validUntil = new long[sortedNodes.length];
+    for (int i = 0; i < sortedNodes.length; i++) {
+      Node override = exact.get(sortedNodes[i]);
+      this.values[i] = override.value;
+      this.validUntil[i] = override.validUntil;
+    }
+
+    // the most specific wildcard has to be found first
+    wildcards.sort(Comparator.comparingInt((Node w) -> w.node.length()).reversed());
+    this.wildcardPrefixes = new String[wildcards.size()];
+    this.wildcardValues = new boolean[wildcards.size()];
+    this.wildcardValidUntil = new long[wildcards.size()];
+    for (int i = 0; i < wildcards.size(); i++) {
+      Node wildcard = wildcards.get(i);
+      this.wildcardPrefixes[i] = wildcard.node.substring(0, wildcard.node.length() - 1);
+      this.wildcardValues[i] = wildcard.value;
+      this.wildcardValidUntil[i] = wildcard.validUntil;
+    }
+  }
+
+  /**
+   * Recursively applies the children of an overridden permission, like Bukkit does. If a child is
+   * set to different values by different parents, false wins.
+   *
+   * @param children the children to apply
+   * @param invert whether to invert the values of the children
+   * @param validUntil the expiry date of the override the children belong to
+   * @param registeredPermissions the permissions registered with Bukkit
+   * @param output the map to store the resulting children in
+   * @param visited the children already applied, used to stop at cyclic declarations
+   */
+  private void expandChildren(
+      Map<String, Boolean> children,
+      boolean invert,
+      long validUntil,
+      RegisteredPermissionIndex registeredPermissions,
+      Map<String, Node> output,
+      Set<String> visited) {
+    for (Map.Entry<String, Boolean> child : children.entrySet()) {
+      String node = child.getKey().toLowerCase(Locale.ROOT);
+      if (!visited.add(node)) continue;
+      boolean value = child.getValue() ^ invert;
+      output.merge(node, new Node(node, value, validUntil), (a, b) -> a.value ? b : a);
+      int index = registeredPermissions.indexOf(node);
+      if (index != -1) {
+        this.expandChildren(
+            registeredPermissions.getChildren(index),
+            !value,
+            validUntil,
+            registeredPermissions,
+            output,
+            visited);
+      }
+    }
+  }
+
+  /**
+   * Checks whether this delta contains no overrides at all.
+   *
+   * @return true if there are no overrides, false otherwise
+   */
+  public boolean isEmpty() {
+    return this.nodes.length == 0 && this.wildcardPrefixes.length == 0;
+  }
+
+  /**
+   * Looks up the overridden value of a permission. An exact override takes precedence over
+   * wildcard overrides, of which the most specific one wins.
+   *
+   * @param permission the permission node to look up
+   * @param now the current time in milliseconds
+   * @return the overridden value or null if the permission is not overridden
+   */
+  public Boolean getValue(String permission, long now) {
+    if (this.nodes.length != 0) {
+      int index = Arrays.binarySearch(this.nodes, permission, String.CASE_INSENSITIVE_ORDER);
+      if (index >= 0 && !isExpired(this.validUntil[index], now)) return this.values[index];
+    }
+    for (int i = 0; i < this.wildcardPrefixes.length; i++) {
+      String prefix = this.wildcardPrefixes[i];
+      if (permission.regionMatches(true, 0, prefix, 0, prefix.length())
+          && !isExpired(this.wildcardValidUntil[i], now)) {
+        return this.wildcardValues[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether a permission is overridden explicitly.
+   *
+   * @param permission the permission node to check
+   * @param now the current time in milliseconds
+   * @return true if there is an exact, unexpired override for the permission, false otherwise
+   */
+  public boolean isSet(String permission, long now) {
+    if (this.nodes.length == 0) return false;
+    int index = Arrays.binarySearch(this.nodes, permission, String.CASE_INSENSITIVE_ORDER);
+    return index >= 0 && !isExpired(this.validUntil[index], now);
+  }
+
+  /**
+   * Returns all unexpired exact overrides.
+   *
+   * @param now the current time in milliseconds
+   * @return the overridden permission nodes, mapped to their values
+   */
+  public Map<String, Boolean> getValues(long now) {
+    Map<String, Boolean> result = new HashMap<>();
+    for (int i = 0; i < this.nodes.length; i++) {
+      if (!isExpired(this.validUntil[i], now)) result.put(this.nodes[i], this.values[i]);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the earliest expiry date of all overrides which have not expired yet.
+   *
+   * @param now the current time in milliseconds
+   * @return the earliest expiry date or {@link Long#MAX_VALUE} if no override will expire
+   */
+  public long getNextExpiry(long now) {
+    long next = Long.MAX_VALUE;
+    for (long expiry : this.validUntil) {
+      if (expiry > now && expiry < next) next = expiry;
+    }
+    for (long expiry : this.wildcardValidUntil) {
+      if (expiry > now && expiry < next) next = expiry;
+    }
+    return next;
+  }
+
+  /**
+   * Checks whether this delta contains exactly the same overrides as another delta.
+   *
+   * @param other the delta to compare with
+   * @return true if both deltas are equivalent, false otherwise
+   */
+  public boolean isEquivalent(PermissionDelta other) {
+    return this == other
+        || (Arrays.equals(this.nodes, other.nodes)
+            && Arrays.equals(this.values, other.values)
+            && Arrays.equals(this.validUntil, other.validUntil)
+            && Arrays.equals(this.wildcardPrefixes, other.wildcardPrefixes)
+            && Arrays.equals(this.wildcardValues, other.wildcardValues)
+            && Arrays.equals(this.wildcardValidUntil, other.wildcardValidUntil));
+  }
+
+  private static boolean isExpired(long validUntil, long now) {
+    return validUntil > 0 && validUntil < now;
+  }
+
+  private static class Node {
+
+    private final String node;
+
+    private final boolean value;
+
+    private final long validUntil;
+
+    private Node(String node, boolean value, long validUntil) {
+      this.node = node;
+      this.value = value;
+      this.validUntil = validUntil;
+    }
+  }
+}
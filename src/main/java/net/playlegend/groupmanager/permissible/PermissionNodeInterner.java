@@ -0,0 +1,172 @@
+package net.playlegend.groupmanager.permissible;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Assigns a dense integer id to every distinct permission node that has been checked. The ids are
+ * stable for the lifetime of the interner and are used to index the per-group result caches. The
+ * amount of ids is limited, so permission nodes built dynamically by other plugins cannot grow the
+ * interner forever. Additionally, an approximate access frequency is kept for every node, which the
+ * result caches use to decide which nodes are worth keeping.
+ */
+public class PermissionNodeInterner {
+
+  private final Map<String, Integer> nodeIds = new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextId = new AtomicInteger();
+
+  private final int capacity;
+
+  private final AtomicIntegerArray frequencies;
+
+  private final AtomicReferenceArray<String> nodes;
+
+  private final LongAdder accessesSinceAging = new LongAdder();
+
+  private final AtomicBoolean aging = new AtomicBoolean();
+
+  /**
+   * Creates a new interner.
+   *
+   * @param capacity the maximum amount of permission nodes to assign ids to
+   */
+  public PermissionNodeInterner(int capacity) {
+    this.capacity = capacity;
+    this.frequencies = new AtomicIntegerArray(capacity);
+    this.nodes = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Returns the id of a permission node, assigning a new one if the node has not been seen before.
+   *
+   * @param permission the permission node
+   * @return the id of the permission node or -1 if the interner is full
+   */
+  public int getId(String permission) {
+    Integer id = this.nodeIds.get(permission);
+    if (id != null) return id;
+    if (this.isFull()) return -1;
+    id = this.nodeIds.computeIfAbsent(permission, this::allocateId);
+    return id == null ? -1 : id;
+  }
+
+  private Integer allocateId(String permission) {
+    int id;
+    do {
+      id = this.nextId.get();
+      if (id >= this.capacity) return null;
+    } while (!this.nextId.compareAndSet(id, id + 1));
+    this.nodes.set(id, permission);
+    return id;
+  }
+
+  /**
+   * Returns the permission node an id has been assigned to.
+   *
+   * @param id the id of the permission node
+   * @return the permission node or null if the id has not been assigned yet
+   */
+  public String getNode(int id) {
+    return this.nodes.get(id);
+  }
+
+  /**
+   * Returns the permission nodes with the highest access frequency.
+   *
+   * @param limit the maximum amount of nodes to return
+   * @return the most frequently checked nodes, most frequent first, without nodes never checked
+   */
+  public List<String> getMostFrequentNodes(int limit) {
+    if (limit <= 0) return List.of();
+    // frequencies keep changing, so the queue has to work on a copy of them
+    PriorityQueue<int[]> top = new PriorityQueue<>(Comparator.comparingInt(entry -> entry[1]));
+    int size = this.size();
+    for (int id = 0; id < size; id++) {
+      int frequency = this.getFrequency(id);
+      if (frequency == 0) continue;
+      top.add(new int[] {id, frequency});
+      if (top.size() > limit) top.poll();
+    }
+    List<String> nodes = new ArrayList<>(top.size());
+    while (!top.isEmpty()) {
+      String node = this.getNode(top.poll()[0]);
+      if (node != null) nodes.add(node);
+    }
+    Collections.reverse(nodes);
+    return nodes;
+  }
+
+  /**
+   * Returns the maximum amount of permission nodes this interner assigns ids to.
+   *
+   * @return the capacity of this interner
+   */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Returns the amount of permission nodes interned so far.
+   *
+   * @return the amount of interned permission nodes
+   */
+  public int size() {
+    return this.nextId.get();
+  }
+
+  /**
+   * Checks whether the interner has run out of ids.
+   *
+   * @return true if no more permission nodes can be interned, false otherwise
+   */
+  public boolean isFull() {
+    return this.nextId.get() >= this.capacity;
+  }
+
+  /**
+   * Records an access to a permission node. Once the amount of accesses recorded exceeds ten times
+   * the capacity, all frequencies are halved so that nodes which are not checked anymore lose
+   * their standing over time.
+   *
+   * @param id the id of the permission node
+   */
+  public void recordAccess(int id) {
+    this.frequencies.incrementAndGet(id);
+    this.accessesSinceAging.increment();
+    if (this.accessesSinceAging.sum() > this.capacity * 10L
+        && this.aging.compareAndSet(false, true)) {
+      try {
+        this.accessesSinceAging.reset();
+        for (int i = 0; i < this.capacity; i++) {
+          int frequency;
+          do {
+            frequency = this.frequencies.get(i);
+          } while (!this.frequencies.compareAndSet(i, frequency, frequency >>> 1));
+        }
+      } finally {
+        this.aging.set(false);
+      }
+    }
+  }
+
+  /**
+   * Returns the approximate access frequency of a permission node.
+   *
+   * @param id the id of the permission node
+   * @return the access frequency
+   */
+  public int getFrequency(int id) {
+    return this.frequencies.get(id);
+  }
+}
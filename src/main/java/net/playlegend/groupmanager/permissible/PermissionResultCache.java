@@ -0,0 +1,178 @@
+package net.playlegend.groupmanager.permissible;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of permission check results for one compiled permission set. Results
+ * are stored as two bit sets indexed by the interned permission node id: one marking the nodes
+ * currently cached and one marking the nodes granted. Once the cache is full, a new node is only
+ * admitted if it is checked more frequently than a sampled victim, which then gets evicted. This
+ * keeps frequently checked nodes cached even if other plugins check lots of dynamically built
+ * nodes.
+ */
+public class PermissionResultCache {
+
+  private static final int VICTIM_SAMPLE_SIZE = 8;
+
+  private final PermissionNodeInterner nodeInterner;
+
+  private final int maximumSize;
+
+  private final ConcurrentBitSet cachedPermissions = new ConcurrentBitSet();
+
+  private final ConcurrentBitSet grantedPermissions = new ConcurrentBitSet();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new cache.
+   *
+   * @param nodeInterner the interner used to look up permission node ids and frequencies
+   * @param maximumSize the maximum amount of results to cache
+   */
+  public PermissionResultCache(PermissionNodeInterner nodeInterner, int maximumSize) {
+    this.nodeInterner = nodeInterner;
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Looks up the id of a permission node and records the access.
+   *
+   * @param permission the permission node
+   * @return the id of the permission node or -1 if it cannot be cached
+   */
+  public int lookup(String permission) {
+    int nodeId = this.nodeInterner.getId(permission);
+    if (nodeId >= 0) this.nodeInterner.recordAccess(nodeId);
+    return nodeId;
+  }
+
+  /**
+   * Looks up the id of a permission node without recording an access, used to prewarm the cache.
+   *
+   * @param permission the permission node
+   * @return the id of the permission node or -1 if it cannot be cached
+   */
+  public int getNodeId(String permission) {
+    return this.nodeInterner.getId(permission);
+  }
+
+  /**
+   * Checks whether the result for a permission node is cached and counts a hit or miss.
+   *
+   * @param nodeId the id of the permission node
+   * @return true if a result is cached, false otherwise
+   */
+  public boolean contains(int nodeId) {
+    if (nodeId >= 0 && this.cachedPermissions.get(nodeId)) {
+      this.hits.increment();
+      return true;
+    }
+    this.misses.increment();
+    return false;
+  }
+
+  /**
+   * Returns the cached result for a permission node. Only valid if {@link #contains(int)} returned
+   * true for the same node.
+   *
+   * @param nodeId the id of the permission node
+   * @return the cached result
+   */
+  public boolean get(int nodeId) {
+    return this.grantedPermissions.get(nodeId);
+  }
+
+  /**
+   * Caches the result for a permission node, evicting a less frequently checked node if the cache
+   * is full. The result is dropped if all sampled nodes are checked more frequently.
+   *
+   * @param nodeId the id of the permission node
+   * @param granted the result to cache
+   */
+  public void put(int nodeId, boolean granted) {
+    if (nodeId < 0) return;
+    if (this.size.get() >= this.maximumSize && !this.evictFor(nodeId)) return;
+    // the result has to be stored before the node is marked as cached
+    if (granted) this.grantedPermissions.set(nodeId, true);
+    if (this.cachedPermissions.set(nodeId, true)) this.size.incrementAndGet();
+  }
+
+  /**
+   * Samples a few cached nodes and evicts the least frequently checked one, if it is checked less
+   * frequently than the candidate.
+   *
+   * @param candidateId the id of the node to be cached
+   * @return true if a node has been evicted, false otherwise
+   */
+  private boolean evictFor(int candidateId) {
+    int limit = this.nodeInterner.size();
+    if (limit == 0) return false;
+    int victimId = -1;
+    int victimFrequency = Integer.MAX_VALUE;
+    int index = ThreadLocalRandom.current().nextInt(limit);
+    for (int i = 0; i < VICTIM_SAMPLE_SIZE; i++) {
+      int found = this.cachedPermissions.nextSetBit(index, limit);
+      if (found == -1) found = this.cachedPermissions.nextSetBit(0, index);
+      if (found == -1) break;
+      int frequency = this.nodeInterner.getFrequency(found);
+      if (frequency < victimFrequency) {
+        victimId = found;
+        victimFrequency = frequency;
+      }
+      index = found + 1 < limit ? found + 1 : 0;
+    }
+    if (victimId == -1 || victimFrequency >= this.nodeInterner.getFrequency(candidateId)) {
+      return false;
+    }
+    if (this.cachedPermissions.set(victimId, false)) {
+      this.size.decrementAndGet();
+      this.evictions.increment();
+    }
+    return true;
+  }
+
+  /**
+   * Returns the amount of results currently cached.
+   *
+   * @return the amount of cached results
+   */
+  public int size() {
+    return this.size.get();
+  }
+
+  /**
+   * Returns the amount of checks answered by this cache.
+   *
+   * @return the amount of cache hits
+   */
+  public long getHits() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Returns the amount of checks which could not be answered by this cache.
+   *
+   * @return the amount of cache misses
+   */
+  public long getMisses() {
+    return this.misses.sum();
+  }
+
+  /**
+   * Returns the amount of results evicted from this cache.
+   *
+   * @return the amount of evictions
+   */
+  public long getEvictions() {
+    return this.evictions.sum();
+  }
+}
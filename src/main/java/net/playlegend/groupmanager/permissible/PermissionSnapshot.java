@@ -0,0 +1,171 @@
+package net.playlegend.groupmanager.permissible;
+
+import lombok.Getter;
+import net.playlegend.groupmanager.model.Group;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable state of all permission caches. A snapshot is always built completely before it is
+ * published by the {@link PermissibleManager}, so readers never see a partially built state and do
+ * not need to lock anything. Compiled permissions are kept per distinct combination of groups, so
+ * all players sharing the same primary and secondary groups share a single compiled set.
+ */
+public class PermissionSnapshot {
+
+  /** Snapshot used before the first caches have been built. */
+  public static final PermissionSnapshot EMPTY =
+      new PermissionSnapshot(
+          new HashMap<>(), new HashMap<>(), new HashMap<>(), new HashMap<>(), Set.of(), Map.of());
+
+  @Getter private final Map<UUID, Set<UUID>> playerCombinations;
+
+  @Getter private final Map<Group, CompiledPermissionSet> compiledGroups;
+
+  @Getter private final Map<Set<UUID>, CompiledPermissionSet> compiledCombinations;
+
+  @Getter private final Map<UUID, PermissionDelta> playerDeltas;
+
+  @Getter private final Set<String> defaultPermissionNodes;
+
+  @Getter private final Map<String, Set<String>> defaultWorldPermissionNodes;
+
+  /**
+   * Creates a new snapshot. The given maps are copied unless they are immutable already, so they
+   * may be reused by the caller.
+   *
+   * @param playerCombinations the ids of the groups of all online players, primary and secondary
+   * @param compiledGroups the compiled permissions of all known groups
+   * @param compiledCombinations the compiled permissions of all group combinations of online
+   *     players, keyed by the ids of the groups in the combination
+   * @param playerDeltas the permission overrides of all online players having any
+   * @param defaultPermissionNodes the permission nodes of the default group
+   * @param defaultWorldPermissionNodes the world scoped permission nodes of the default group
+   */
+  public PermissionSnapshot(
+      Map<UUID, Set<UUID>> playerCombinations,
+      Map<Group, CompiledPermissionSet> compiledGroups,
+      Map<Set<UUID>, CompiledPermissionSet> compiledCombinations,
+      Map<UUID, PermissionDelta> playerDeltas,
+      Set<String> defaultPermissionNodes,
+      Map<String, Set<String>> defaultWorldPermissionNodes) {
+    this.playerCombinations = Map.copyOf(playerCombinations);
+    this.compiledGroups = Map.copyOf(compiledGroups);
+    this.compiledCombinations = Map.copyOf(compiledCombinations);
+    this.playerDeltas = Map.copyOf(playerDeltas);
+    this.defaultPermissionNodes = Set.copyOf(defaultPermissionNodes);
+    this.defaultWorldPermissionNodes = Map.copyOf(defaultWorldPermissionNodes);
+  }
+
+  /**
+   * Returns the compiled permissions of an online player.
+   *
+   * @param uuid the players' UUID
+   * @return the compiled permissions of the players' group combination or null if the player is
+   *     not cached
+   */
+  public CompiledPermissionSet getCompiledPermissions(UUID uuid) {
+    Set<UUID> combination = this.playerCombinations.get(uuid);
+    if (combination == null) return null;
+    return this.compiledCombinations.get(combination);
+  }
+
+  /**
+   * Returns the permission overrides of an online player.
+   *
+   * @param uuid the players' UUID
+   * @return the players' overrides, empty if the player has none or is not cached
+   */
+  public PermissionDelta getPermissionDelta(UUID uuid) {
+    return this.playerDeltas.getOrDefault(uuid, PermissionDelta.EMPTY);
+  }
+
+  /**
+   * Creates a copy of this snapshot with the data of a single player replaced. Only the maps which
+   * actually change are copied. A group combination no other player uses anymore is dropped.
+   *
+   * @param uuid the players' UUID
+   * @param combination the ids of the players' primary and secondary groups
+   * @param compiledCombination the compiled permissions of the players' group combination
+   * @param delta the players' permission overrides
+   * @return the new snapshot
+   */
+  public PermissionSnapshot withPlayer(
+      UUID uuid,
+      Set<UUID> combination,
+      CompiledPermissionSet compiledCombination,
+      PermissionDelta delta) {
+    Map<UUID, Set<UUID>> playerCombinations = this.playerCombinations;
+    Map<Set<UUID>, CompiledPermissionSet> compiledCombinations = this.compiledCombinations;
+    Set<UUID> previousCombination = playerCombinations.get(uuid);
+    if (!combination.equals(previousCombination)) {
+      playerCombinations = new HashMap<>(playerCombinations);
+      playerCombinations.put(uuid, combination);
+      compiledCombinations =
+          this.pruneCombination(previousCombination, playerCombinations, compiledCombinations);
+    }
+    if (compiledCombinations.get(combination) != compiledCombination) {
+      compiledCombinations = new HashMap<>(compiledCombinations);
+      compiledCombinations.put(combination, compiledCombination);
+    }
+    Map<UUID, PermissionDelta> playerDeltas = this.playerDeltas;
+    if (delta.isEmpty() ? playerDeltas.containsKey(uuid) : playerDeltas.get(uuid) != delta) {
+      playerDeltas = new HashMap<>(playerDeltas);
+      if (delta.isEmpty()) {
+        playerDeltas.remove(uuid);
+      } else {
+        playerDeltas.put(uuid, delta);
+      }
+    }
+    return new PermissionSnapshot(
+        playerCombinations,
+        this.compiledGroups,
+        compiledCombinations,
+        playerDeltas,
+        this.defaultPermissionNodes,
+        this.defaultWorldPermissionNodes);
+  }
+
+  /**
+   * Creates a copy of this snapshot without the data of a player who has left. Returns this
+   * snapshot if the player is not part of it.
+   *
+   * @param uuid the players' UUID
+   * @return the new snapshot
+   */
+  public PermissionSnapshot withoutPlayer(UUID uuid) {
+    Set<UUID> previousCombination = this.playerCombinations.get(uuid);
+    if (previousCombination == null && !this.playerDeltas.containsKey(uuid)) return this;
+    Map<UUID, Set<UUID>> playerCombinations = new HashMap<>(this.playerCombinations);
+    playerCombinations.remove(uuid);
+    Map<UUID, PermissionDelta> playerDeltas = this.playerDeltas;
+    if (playerDeltas.containsKey(uuid)) {
+      playerDeltas = new HashMap<>(playerDeltas);
+      playerDeltas.remove(uuid);
+    }
+    return new PermissionSnapshot(
+        playerCombinations,
+        this.compiledGroups,
+        this.pruneCombination(previousCombination, playerCombinations, this.compiledCombinations),
+        playerDeltas,
+        this.defaultPermissionNodes,
+        this.defaultWorldPermissionNodes);
+  }
+
+  private Map<Set<UUID>, CompiledPermissionSet> pruneCombination(
+      Set<UUID> combination,
+      Map<UUID, Set<UUID>> playerCombinations,
+      Map<Set<UUID>, CompiledPermissionSet> compiledCombinations) {
+    if (combination == null
+        || !compiledCombinations.containsKey(combination)
+        || playerCombinations.containsValue(combination)) {
+      return compiledCombinations;
+    }
+    Map<Set<UUID>, CompiledPermissionSet> pruned = new HashMap<>(compiledCombinations);
+    pruned.remove(combination);
+    return pruned;
+  }
+}
@@ -0,0 +1,206 @@
+package net.playlegend.groupmanager.permissible;
+
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects statistics about the permission checks answered by the compiled permission sets. The
+ * hot path only ever increments counters: totals are kept in striped counters, per node counts are
+ * kept in arrays indexed by the interned node id and the latency of the slow path is only measured
+ * for a random sample of checks. Everything else, like computing rates, percentiles and the most
+ * checked nodes, is done when the statistics are flushed into a {@link PermissionTelemetryReport},
+ * which happens asynchronously.
+ */
+public class PermissionTelemetry {
+
+  private static final int LATENCY_BUCKETS = 64;
+
+  private final PermissionNodeInterner nodeInterner;
+
+  private final int latencySampleRate;
+
+  private final int topNodes;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder uncachedChecks = new LongAdder();
+
+  private final AtomicLongArray checkedNodes;
+
+  private final AtomicLongArray missedNodes;
+
+  private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BUCKETS);
+
+  @Getter private final long startedAt = System.currentTimeMillis();
+
+  private long lastFlushChecks;
+
+  private long lastFlushTime = this.startedAt;
+
+  @Getter private volatile PermissionTelemetryReport lastReport;
+
+  /**
+   * Creates a new telemetry.
+   *
+   * @param nodeInterner the interner whose node ids are used to count checks per node
+   * @param latencySampleRate measure the latency of one in this many slow path checks, 0 to never
+   *     measure it
+   * @param topNodes the amount of most checked and most missed nodes to report
+   */
+  public PermissionTelemetry(
+      PermissionNodeInterner nodeInterner, int latencySampleRate, int topNodes) {
+    this.nodeInterner = nodeInterner;
+    this.latencySampleRate = latencySampleRate;
+    this.topNodes = topNodes;
+    this.checkedNodes = new AtomicLongArray(nodeInterner.getCapacity());
+    this.missedNodes = new AtomicLongArray(nodeInterner.getCapacity());
+  }
+
+  /**
+   * Records a check answered by the result cache.
+   *
+   * @param nodeId the id of the checked permission node
+   */
+  public void recordHit(int nodeId) {
+    this.hits.increment();
+    this.checkedNodes.incrementAndGet(nodeId);
+  }
+
+  /**
+   * Records a check answered by the precomputed answer of a registered permission. Such checks
+   * never touch the result cache, so they are only counted as hits, without interning the node or
+   * counting them per node.
+   */
+  public void recordPrecomputedHit() {
+    this.hits.increment();
+  }
+
+  /**
+   * Records a check which had to be resolved by the slow path.
+   *
+   * @param nodeId the id of the checked permission node or -1 if it could not be interned
+   */
+  public void recordMiss(int nodeId) {
+    this.misses.increment();
+    if (nodeId < 0) {
+      this.uncachedChecks.increment();
+      return;
+    }
+    this.checkedNodes.incrementAndGet(nodeId);
+    this.missedNodes.incrementAndGet(nodeId);
+  }
+
+  /**
+   * Decides whether to measure the latency of the current slow path check.
+   *
+   * @return true if the latency should be measured, false otherwise
+   */
+  public boolean shouldSampleLatency() {
+    return this.latencySampleRate > 0
+        && ThreadLocalRandom.current().nextInt(this.latencySampleRate) == 0;
+  }
+
+  /**
+   * Records the measured latency of a slow path check.
+   *
+   * @param nanos the latency in nanoseconds
+   */
+  public void recordLatency(long nanos) {
+    this.latencyBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+  }
+
+  /**
+   * Aggregates the statistics collected so far into a report, which is then also available using
+   * {@link #getLastReport()}. Rates are computed over the time since the previous flush.
+   *
+   * @return the new report
+   */
+  public synchronized PermissionTelemetryReport flush() {
+    long now = System.currentTimeMillis();
+    long hits = this.hits.sum();
+    long misses = this.misses.sum();
+    long checks = hits + misses;
+    double seconds = Math.max(now - this.lastFlushTime, 1) / 1000D;
+    double checksPerSecond = (checks - this.lastFlushChecks) / seconds;
+    this.lastFlushChecks = checks;
+    this.lastFlushTime = now;
+
+    long[] latencies = new long[LATENCY_BUCKETS];
+    long samples = 0;
+    for (int i = 0; i < LATENCY_BUCKETS; i++) {
+      latencies[i] = this.latencyBuckets.get(i);
+      samples += latencies[i];
+    }
+    PermissionTelemetryReport report =
+        new PermissionTelemetryReport(
+            this.startedAt,
+            now,
+            checks,
+            hits,
+            misses,
+            this.uncachedChecks.sum(),
+            checksPerSecond,
+            samples,
+            percentile(latencies, samples, 0.5),
+            percentile(latencies, samples, 0.9),
+            percentile(latencies, samples, 0.99),
+            this.findTopNodes(this.checkedNodes),
+            this.findTopNodes(this.missedNodes));
+    this.lastReport = report;
+    return report;
+  }
+
+  /**
+   * Estimates a percentile of the sampled latencies. Latencies are kept in power of two buckets,
+   * so the upper bound of the bucket containing the percentile is returned.
+   *
+   * @param latencies the amount of samples per bucket
+   * @param samples the total amount of samples
+   * @param percentile the percentile to estimate, between 0 and 1
+   * @return the estimated latency in nanoseconds or 0 if there are no samples
+   */
+  private static long percentile(long[] latencies, long samples, double percentile) {
+    if (samples == 0) return 0;
+    long rank = (long) Math.ceil(samples * percentile);
+    long seen = 0;
+    for (int i = 0; i < latencies.length; i++) {
+      seen += latencies[i];
+      if (seen >= rank) return i >= 62 ? Long.MAX_VALUE : 1L << (i + 1);
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Finds the permission nodes with the highest counts.
+   *
+   * @param counts the counts per node id
+   * @return the permission nodes with the highest counts, mapped to their counts, highest first
+   */
+  private Map<String, Long> findTopNodes(AtomicLongArray counts) {
+    PriorityQueue<long[]> top = new PriorityQueue<>(Comparator.comparingLong(entry -> entry[1]));
+    int size = this.nodeInterner.size();
+    for (int id = 0; id < size; id++) {
+      long count = counts.get(id);
+      if (count == 0) continue;
+      if (top.size() < this.topNodes) {
+        top.add(new long[] {id, count});
+      } else if (!top.isEmpty() && top.peek()[1] < count) {
+        top.poll();
+        top.add(new long[] {id, count});
+      }
+    }
+    List<long[]> sorted = new ArrayList<>(top);
+    sorted.sort(Comparator.comparingLong((long[] entry) -> entry[1]).reversed());
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (long[] entry : sorted) {
+      result.put(this.nodeInterner.getNode((int) entry[0]), entry[1]);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,91 @@
+package net.playlegend.groupmanager.permissible;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/** Immutable summary of the permission check statistics, created by {@link PermissionTelemetry}. */
+public class PermissionTelemetryReport {
+
+  @Getter private final long startedAt;
+
+  @Getter private final long createdAt;
+
+  @Getter private final long checks;
+
+  @Getter private final long cacheHits;
+
+  @Getter private final long cacheMisses;
+
+  @Getter private final long uncachedChecks;
+
+  @Getter private final double checksPerSecond;
+
+  @Getter private final long latencySamples;
+
+  @Getter private final long latencyP50Nanos;
+
+  @Getter private final long latencyP90Nanos;
+
+  @Getter private final long latencyP99Nanos;
+
+  @Getter private final Map<String, Long> mostCheckedNodes;
+
+  @Getter private final Map<String, Long> mostMissedNodes;
+
+  /**
+   * Creates a new report.
+   *
+   * @param startedAt the time the statistics have been started to be collected at
+   * @param createdAt the time this report has been created at
+   * @param checks the total amount of checks
+   * @param cacheHits the amount of checks answered by the result caches
+   * @param cacheMisses the amount of checks resolved by the slow path
+   * @param uncachedChecks the amount of checks of nodes which could not be interned
+   * @param checksPerSecond the amount of checks per second since the previous report
+   * @param latencySamples the amount of slow path checks whose latency has been measured
+   * @param latencyP50Nanos the estimated median slow path latency
+   * @param latencyP90Nanos the estimated 90th percentile of the slow path latency
+   * @param latencyP99Nanos the estimated 99th percentile of the slow path latency
+   * @param mostCheckedNodes the most checked nodes, mapped to their amount of checks
+   * @param mostMissedNodes the nodes most often resolved by the slow path, mapped to their amount
+   *     of cache misses
+   */
+  public PermissionTelemetryReport(
+      long startedAt,
+      long createdAt,
+      long checks,
+      long cacheHits,
+      long cacheMisses,
+      long uncachedChecks,
+      double checksPerSecond,
+      long latencySamples,
+      long latencyP50Nanos,
+      long latencyP90Nanos,
+      long latencyP99Nanos,
+      Map<String, Long> mostCheckedNodes,
+      Map<String, Long> mostMissedNodes) {
+    this.startedAt = startedAt;
+    this.createdAt = createdAt;
+    this.checks = checks;
+    this.cacheHits = cacheHits;
+    this.cacheMisses = cacheMisses;
+    this.uncachedChecks = uncachedChecks;
+    this.checksPerSecond = checksPerSecond;
+    this.latencySamples = latencySamples;
+    this.latencyP50Nanos = latencyP50Nanos;
+    this.latencyP90Nanos = latencyP90Nanos;
+    this.latencyP99Nanos = latencyP99Nanos;
+    this.mostCheckedNodes = mostCheckedNodes;
+    this.mostMissedNodes = mostMissedNodes;
+  }
+
+  /**
+   * Returns the share of checks answered by the result caches.
+   *
+   * @return the cache hit rate between 0 and 1, 0 if there have not been any checks
+   */
+  public double getCacheHitRate() {
+    return this.checks == 0 ? 0 : (double) this.cacheHits / this.checks;
+  }
+}
@@ -0,0 +1,110 @@
+package net.playlegend.groupmanager.permissible;
+
+import org.bukkit.permissions.Permission;
+
+import java.util.*;
+
+/**
+ * Assigns a dense index to every permission registered with Bukkit's plugin manager at the time of
+ * creation, so that compiled permission sets can precompute their answer for each of them. Also
+ * remembers the children declared for every registered permission.
+ */
+public class RegisteredPermissionIndex {
+
+  /** Index used before the registered permissions have been read for the first time. */
+  public static final RegisteredPermissionIndex EMPTY =
+      new RegisteredPermissionIndex(Collections.emptySet());
+
+  private final Permission[] permissions;
+
+  private final Map<Permission, Integer> indexByPermission = new IdentityHashMap<>();
+
+  private final Map<String, Integer> indexByName = new HashMap<>();
+
+  private final List<Map<String, Boolean>> children = new ArrayList<>();
+
+  /**
+   * Creates a new index.
+   *
+   * @param registeredPermissions all permissions registered with Bukkit
+   */
+  public RegisteredPermissionIndex(Collection<Permission> registeredPermissions) {
+    this.permissions = registeredPermissions.toArray(new Permission[0]);
+    for (int i = 0; i < this.permissions.length; i++) {
+      Permission permission = this.permissions[i];
+      this.indexByPermission.put(permission, i);
+      this.indexByName.put(permission.getName().toLowerCase(Locale.ROOT), i);
+      this.children.add(Map.copyOf(permission.getChildren()));
+    }
+  }
+
+  /**
+   * Returns the amount of registered permissions.
+   *
+   * @return the amount of registered permissions
+   */
+  public int size() {
+    return this.permissions.length;
+  }
+
+  /**
+   * Returns the index of a registered permission.
+   *
+   * @param permission the permission
+   * @return the index of the permission or -1 if it has not been registered
+   */
+  public int indexOf(Permission permission) {
+    Integer index = this.indexByPermission.get(permission);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the index of a registered permission by its name.
+   *
+   * @param name the name of the permission
+   * @return the index of the permission or -1 if it has not been registered
+   */
+  public int indexOf(String name) {
+    Integer index = this.indexByName.get(name);
+    if (index == null) index = this.indexByName.get(name.toLowerCase(Locale.ROOT));
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the name of a registered permission.
+   *
+   * @param index the index of the permission
+   * @return the name of the permission
+   */
+  public String getName(int index) {
+    return this.permissions[index].getName();
+  }
+
+  /**
+   * Returns the children declared for a registered permission.
+   *
+   * @param index the index of the permission
+   * @return the children of the permission, mapped to the value they are set to
+   */
+  public Map<String, Boolean> getChildren(int index) {
+    return this.children.get(index);
+  }
+
+  /**
+   * Checks whether this index contains exactly the same permissions and children as another one,
+   * in which case permission sets compiled against the other index remain valid.
+   *
+   * @param other the index to compare to
+   * @return true if both indexes are equivalent, false otherwise
+   */
+  public boolean isEquivalent(RegisteredPermissionIndex other) {
+    if (this.permissions.length != other.permissions.length) return false;
+    for (int i = 0; i < this.permissions.length; i++) {
+      int otherIndex = other.indexOf(this.permissions[i]);
+      if (otherIndex == -1 || !this.children.get(i).equals(other.children.get(otherIndex))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
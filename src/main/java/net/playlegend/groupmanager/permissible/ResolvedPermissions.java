@@ -0,0 +1,116 @@
+package net.playlegend.groupmanager.permissible;
+
+import lombok.Getter;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable permission state of a single player, resolved by the {@link PermissibleManager} and
+ * handed to the players' {@link GmPermissible}. Consists of the compiled permissions of the
+ * players' group in the players' current world and the players' own overrides on top of them.
+ * Replaced as a whole whenever the players' group, the permissions of that group, the players'
+ * overrides or the players' world change.
+ */
+public class ResolvedPermissions {
+
+  /** State of players whose data has not been cached yet. Grants nothing. */
+  public static final ResolvedPermissions NONE =
+      new ResolvedPermissions(null, PermissionDelta.EMPTY, null);
+
+  @Getter private final CompiledPermissionSet compiledPermissions;
+
+  @Getter private final PermissionDelta permissionDelta;
+
+  @Getter private final String world;
+
+  private final CompiledPermissionSet worldPermissions;
+
+  /**
+   * Creates a new resolved state.
+   *
+   * @param compiledPermissions the compiled permissions of the players' group, may be null
+   * @param permissionDelta the players' own permission overrides
+   * @param world the name of the players' current world, may be null
+   */
+  public ResolvedPermissions(
+      CompiledPermissionSet compiledPermissions, PermissionDelta permissionDelta, String world) {
+    this.compiledPermissions = compiledPermissions;
+    this.permissionDelta = permissionDelta;
+    this.world = world;
+    this.worldPermissions =
+        compiledPermissions == null ? null : compiledPermissions.getWorldPermissions(world);
+  }
+
+  /**
+   * Creates a copy of this state for another world. Only picks the precompiled permissions of the
+   * world, nothing is compiled or loaded.
+   *
+   * @param world the name of the world
+   * @return the state for the given world
+   */
+  public ResolvedPermissions withWorld(String world) {
+    if (Objects.equals(this.world, world)) return this;
+    return new ResolvedPermissions(this.compiledPermissions, this.permissionDelta, world);
+  }
+
+  /**
+   * Checks whether a permission is granted.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is granted, false otherwise
+   */
+  public boolean hasPermission(String permission) {
+    if (!this.permissionDelta.isEmpty()) {
+      Boolean value = this.permissionDelta.getValue(permission, System.currentTimeMillis());
+      if (value != null) return value;
+    }
+    if (this.worldPermissions == null) return false;
+    return this.worldPermissions.hasPermission(permission);
+  }
+
+  /**
+   * Checks whether a registered permission is granted.
+   *
+   * @param permission the permission to check
+   * @return true if the permission is granted, false otherwise
+   */
+  public boolean hasPermission(Permission permission) {
+    if (!this.permissionDelta.isEmpty()) {
+      Boolean value =
+          this.permissionDelta.getValue(permission.getName(), System.currentTimeMillis());
+      if (value != null) return value;
+    }
+    if (this.worldPermissions == null) return false;
+    return this.worldPermissions.hasPermission(permission);
+  }
+
+  /**
+   * Checks whether a permission is set.
+   *
+   * @param permission the permission node to check
+   * @return true if the permission is set, false otherwise
+   */
+  public boolean isPermissionSet(String permission) {
+    if (!this.permissionDelta.isEmpty()
+        && this.permissionDelta.isSet(permission, System.currentTimeMillis())) {
+      return true;
+    }
+    if (this.worldPermissions == null) return false;
+    return this.worldPermissions.isPermissionSet(permission);
+  }
+
+  /**
+   * Returns the effective permissions shared by all members of the players' group, without the
+   * players' own overrides.
+   *
+   * @return an immutable set of the effective permissions
+   */
+  public Set<PermissionAttachmentInfo> getEffectivePermissions() {
+    if (this.worldPermissions == null) return Collections.emptySet();
+    return this.worldPermissions.getEffectivePermissions();
+  }
+}
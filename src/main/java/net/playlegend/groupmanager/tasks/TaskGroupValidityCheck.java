@@ -3,7 +3,9 @@ package net.playlegend.groupmanager.tasks;
 import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
 import net.playlegend.groupmanager.datastore.wrapper.UserDao;
+import net.playlegend.groupmanager.datastore.wrapper.UserPermissionDao;
 import net.playlegend.groupmanager.model.User;
+import net.playlegend.groupmanager.model.UserPermission;
 import org.bukkit.Bukkit;
 
 import java.util.List;
@@ -27,16 +29,27 @@ public class TaskGroupValidityCheck implements Runnable {
           if (user != null) {
             if (user.getGroupValidUntil() < System.currentTimeMillis()
                 && user.getGroupValidUntil() > 0) {
-              user.getGroup().getUsers().remove(user);
-              user.setGroup(GroupManagerPlugin.getInstance().getDefaultGroup());
-              user.setGroupValidUntil(-1);
-              Dao.forType(User.class).update(user);
+              Dao.forType(User.class)
+                  .modify(
+                      user.getUuid(),
+                      currentUser -> {
+                        // the group might have been changed since the online users were loaded
+                        long validUntil = currentUser.getGroupValidUntil();
+                        if (validUntil < System.currentTimeMillis() && validUntil > 0) {
+                          currentUser.setGroup(GroupManagerPlugin.getInstance().getDefaultGroup());
+                          currentUser.setGroupValidUntil(-1);
+                        }
+                      });
             }
           } else {
             throw new IllegalStateException("User online but not in database");
           }
         }
       }
+      // expired overrides are already ignored by permission checks, so they are only cleaned up
+      for (UserPermission userPermission : UserPermissionDao.getExpiredUserPermissions()) {
+        Dao.forType(UserPermission.class).delete(userPermission);
+      }
     } catch (Exception e) {
       GroupManagerPlugin.getInstance().log(Level.WARNING, "Failed to refresh group validity.", e);
     }
@@ -0,0 +1,14 @@
+package net.playlegend.groupmanager.tasks;
+
+import net.playlegend.groupmanager.GroupManagerPlugin;
+
+public class TaskPermissionPush implements Runnable {
+
+  @Override
+  public void run() {
+    GroupManagerPlugin.getInstance()
+        .getPermissibleManager()
+        .pushPendingPermissions(
+            GroupManagerPlugin.getInstance().getGroupManagerConfig().getPermissionPushesPerTick());
+  }
+}
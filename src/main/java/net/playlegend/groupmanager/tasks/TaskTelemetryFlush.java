@@ -0,0 +1,11 @@
+package net.playlegend.groupmanager.tasks;
+
+import net.playlegend.groupmanager.GroupManagerPlugin;
+
+public class TaskTelemetryFlush implements Runnable {
+
+  @Override
+  public void run() {
+    GroupManagerPlugin.getInstance().getPermissibleManager().getTelemetry().flush();
+  }
+}
@@ -36,7 +36,19 @@ public class CommandUtil {
    */
   public static void insertDurationReplacement(
       User user, CommandSender sender, HashMap<String, String> replacements) {
-    if (user.getGroupValidUntil() == -1) {
+    CommandUtil.insertDurationReplacement(user.getGroupValidUntil(), sender, replacements);
+  }
+
+  /**
+   * Inserts a formatted expiry date into a replacement map.
+   *
+   * @param validUntil the expiry date in milliseconds or -1 if it never expires
+   * @param sender the sender who will eventually see this message
+   * @param replacements the replacements map to insert into
+   */
+  public static void insertDurationReplacement(
+      long validUntil, CommandSender sender, HashMap<String, String> replacements) {
+    if (validUntil == -1) {
       replacements.put(
           "%duration%",
           GroupManagerPlugin.getInstance()
@@ -48,7 +60,7 @@ public class CommandUtil {
               .getTextManager()
               .getMessage(sender, "gm.user.group.duration.format", null);
       DateTimeFormatter formatter = DateTimeFormat.forPattern(format);
-      String formattedTime = formatter.print(user.getGroupValidUntil());
+      String formattedTime = formatter.print(validUntil);
       replacements.put("%duration%", formattedTime);
     }
   }
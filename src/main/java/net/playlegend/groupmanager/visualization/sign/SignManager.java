@@ -128,7 +128,6 @@ public class SignManager {
    *     database
    */
   public void removeSign(RankSign rankSign) throws DataAccessException {
-    rankSign.getUser().getRankSigns().remove(rankSign);
     Dao.forType(RankSign.class).delete(rankSign);
     this.rankSigns.remove(rankSign);
     GroupManagerPlugin.getInstance().rebuildEverything();
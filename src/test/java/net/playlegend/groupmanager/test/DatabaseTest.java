@@ -2,20 +2,25 @@ package net.playlegend.groupmanager.test;
 
 import be.seeseemelk.mockbukkit.MockBukkit;
 import be.seeseemelk.mockbukkit.ServerMock;
+import jakarta.persistence.PersistenceUnitUtil;
 import net.playlegend.groupmanager.GroupManagerPlugin;
 import net.playlegend.groupmanager.datastore.Dao;
+import net.playlegend.groupmanager.datastore.cache.UserCache;
 import net.playlegend.groupmanager.datastore.wrapper.GroupDao;
+import net.playlegend.groupmanager.datastore.wrapper.RankSignDao;
 import net.playlegend.groupmanager.datastore.wrapper.UserDao;
 import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.RankSign;
 import net.playlegend.groupmanager.model.User;
-import net.playlegend.groupmanager.util.FileUtil;
 import org.bukkit.Bukkit;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 public class DatabaseTest {
@@ -27,31 +32,12 @@ public class DatabaseTest {
   @BeforeAll
   public void prepareTest() throws Exception {
     System.out.println("Test preparation...");
-    this.extractHibernateConfig();
+    this.hibernateConfigFile = HibernateTestConfig.extract("update");
     this.server = MockBukkit.mock();
     this.groupManagerPlugin = MockBukkit.load(GroupManagerPlugin.class);
     System.out.println("Done!");
   }
 
-  public void extractHibernateConfig() throws Exception {
-    Properties hibernateConfig = new Properties();
-    hibernateConfig.put("hibernate.connection.driver_class", "com.mysql.jdbc.Driver");
-    hibernateConfig.put(
-        "hibernate.connection.url",
-        "jdbc:mysql://192.168.2.45:3306/gmanagertest?autoReconnect=true"); // CHANGE ACCORDINGLY
-    // !!!!!
-    hibernateConfig.put("hibernate.connection.username", "gmanager");
-    hibernateConfig.put("hibernate.connection.password", "gmanager");
-    hibernateConfig.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
-    hibernateConfig.put("hibernate.hbm2ddl.auto", "update");
-    hibernateConfig.put("hibernate.show_sql", "false");
-    new File("plugins").mkdir();
-    this.hibernateConfigFile = new File(FileUtil.PLUGIN_ROOT_DIRECTORY, "hibernate.properties");
-    if (hibernateConfigFile.exists()) hibernateConfigFile.delete();
-    hibernateConfigFile.createNewFile();
-    hibernateConfig.store(new FileWriter(hibernateConfigFile), "Hibernate Test Configuration");
-  }
-
   @Test
   public void testDatabase() throws Exception {
     System.out.println("Test!");
@@ -63,10 +49,19 @@ public class DatabaseTest {
     Dao.forType(Group.class).put(testGroup);
     Group group = GroupDao.getGroup(groupName);
     Assertions.assertNotNull(group, "Group is null.");
+    Assertions.assertNotSame(testGroup, group, "Stored group was registered.");
+    Assertions.assertDoesNotThrow(
+        () -> testGroup.setPrefix(groupPrefix), "Stored group was made read-only.");
     Assertions.assertEquals(group.getName(), groupName, "Group name mismatch.");
     Assertions.assertEquals(group.getPrefix(), groupPrefix, "Group prefix mismatch.");
     System.out.println("Group creation test successful.");
 
+    Group registeredGroup = group;
+    Assertions.assertThrows(
+        IllegalStateException.class,
+        () -> registeredGroup.setPrefix(groupPrefix + "2"),
+        "Registered group was modifiable.");
+    group = GroupDao.loadGroup(groupName);
     group.setPrefix(groupPrefix + "2");
     group = Dao.forType(Group.class).update(group);
     Assertions.assertEquals(group.getPrefix(), groupPrefix + "2", "Group prefix mismatch. (2)");
@@ -89,20 +84,22 @@ public class DatabaseTest {
     Assertions.assertEquals(user.getGroup().getName(), group.getName(), "Group user mismatch.");
     System.out.println("Player async group change test successful.");
 
-    user.setGroup(GroupDao.getGroup("default"));
-    user = Dao.forType(User.class).update(user);
+    User cachedUser = user;
+    Assertions.assertThrows(
+        IllegalStateException.class,
+        () -> cachedUser.setGroup(null),
+        "Cached user was modifiable.");
+    Group defaultGroup = GroupDao.getGroup("default");
+    user = Dao.forType(User.class).modify(playerId, current -> current.setGroup(defaultGroup));
+    Assertions.assertEquals(defaultGroup, user.getGroup(), "Group user mismatch. (2)");
     System.out.println("Player group change test successful.");
 
-    group.getUsers().clear();
     Dao.forType(Group.class).delete(group);
     group = GroupDao.getGroup(groupName);
     Assertions.assertNull(group, "Group was not deleted.");
     System.out.println("Group delete test successful.");
 
-    user.getGroup().getUsers().remove(user);
-    Dao.forType(Group.class).update(user.getGroup());
-    user.setGroup(null);
-    user = Dao.forType(User.class).update(user);
+    user = Dao.forType(User.class).modify(playerId, current -> current.setGroup(null));
     Assertions.assertNull(user.getGroup(), "User group was not detached.");
     System.out.println("User group detach test successful.");
 
@@ -118,8 +115,138 @@ public class DatabaseTest {
     System.out.println("Group delete test successful. (2)");
   }
 
+  @Test
+  public void testFetchPlanQueryCounts() throws Exception {
+    Group group = new Group();
+    group.setName("FetchGroup");
+    Dao.forType(Group.class).put(group);
+    this.server.addSimpleWorld("fetchworld");
+    // several rows per query, so a query per row would show up in the counts
+    List<User> users = new ArrayList<>();
+    List<RankSign> rankSigns = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      User user = new User();
+      user.setName("FetchPlayer" + i);
+      user.setUuid(UUID.randomUUID());
+      user.setGroup(group);
+      user.getSecondaryGroups().add(group);
+      Dao.forType(User.class).put(user);
+      users.add(user);
+      RankSign rankSign = new RankSign();
+      rankSign.setWorld("fetchworld");
+      rankSign.setPosX(i);
+      rankSign.setUser(user);
+      Dao.forType(RankSign.class).put(rankSign);
+      rankSigns.add(rankSign);
+    }
+    List<UUID> uuids = users.stream().map(User::getUuid).collect(Collectors.toList());
+    // writes rebuild synchronously, but may schedule asynchronous sign reloads adding to the counts
+    this.server.getScheduler().waitAsyncTasksFinished();
+
+    Statistics statistics = this.groupManagerPlugin.getSessionFactory().getStatistics();
+    statistics.clear();
+    List<RankSign> loadedSigns = RankSignDao.getAllSigns();
+    Assertions.assertNotNull(loadedSigns, "Rank signs are null.");
+    Assertions.assertTrue(loadedSigns.size() >= 2, "Rank signs are missing.");
+    for (RankSign loadedSign : loadedSigns) {
+      Assertions.assertNotNull(loadedSign.getUser().getGroup().getName(), "Sign group is null.");
+    }
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Sign query count.");
+    System.out.println("Sign fetch plan test successful.");
+
+    statistics.clear();
+    User loadedUser = UserDao.loadUser(uuids.get(0));
+    Assertions.assertEquals(group, loadedUser.getGroup(), "User group mismatch.");
+    Assertions.assertTrue(loadedUser.getSecondaryGroups().contains(group), "Groups mismatch.");
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "User query count.");
+    System.out.println("User fetch plan test successful.");
+
+    statistics.clear();
+    List<User> loadedUsers = UserDao.loadUsers(uuids);
+    Assertions.assertEquals(2, loadedUsers.size(), "Users are missing.");
+    for (User user : loadedUsers) {
+      Assertions.assertEquals(group, user.getGroup(), "Users group mismatch.");
+      Assertions.assertTrue(user.getSecondaryGroups().contains(group), "Users groups mismatch.");
+    }
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Users query count.");
+    System.out.println("Online users fetch plan test successful.");
+
+    statistics.clear();
+    Group loadedGroup = GroupDao.loadGroup("FetchGroup");
+    Assertions.assertNotNull(loadedGroup.getPermissions(), "Group permissions are null.");
+    Assertions.assertEquals(1, statistics.getPrepareStatementCount(), "Group query count.");
+    System.out.println("Group fetch plan test successful.");
+
+    // associations are lazy, so entities loaded by id have to use the fetch plans as well
+    PersistenceUnitUtil persistenceUnitUtil =
+        this.groupManagerPlugin.getSessionFactory().getPersistenceUnitUtil();
+    Group modifiedGroup = Dao.forType(Group.class).modify(group.getId(), current -> {});
+    Assertions.assertTrue(
+        persistenceUnitUtil.isLoaded(modifiedGroup, "parents"), "Group parents are not loaded.");
+    Assertions.assertFalse(
+        persistenceUnitUtil.isLoaded(modifiedGroup, "users"), "Group members are loaded.");
+    User modifiedUser = Dao.forType(User.class).modify(uuids.get(0), current -> {});
+    Assertions.assertTrue(
+        persistenceUnitUtil.isLoaded(modifiedUser, "secondaryGroups"), "Groups are not loaded.");
+    Assertions.assertFalse(
+        persistenceUnitUtil.isLoaded(modifiedUser, "rankSigns"), "User signs are loaded.");
+    System.out.println("Modify fetch plan test successful.");
+
+    for (RankSign rankSign : rankSigns) {
+      Dao.forType(RankSign.class).delete(rankSign);
+    }
+    for (UUID uuid : uuids) {
+      Dao.forType(User.class).delete(UserDao.loadUser(uuid));
+    }
+    GroupDao.deleteGroup(GroupDao.getGroup("FetchGroup"));
+  }
+
+  @Test
+  public void testGroupWriteKeepsResidents() throws Exception {
+    Group group = new Group();
+    group.setName("ResidentGroup");
+    Dao.forType(Group.class).put(group);
+    Group otherGroup = new Group();
+    otherGroup.setName("ResidentOtherGroup");
+    Dao.forType(Group.class).put(otherGroup);
+    User member = new User();
+    member.setName("ResidentMember");
+    member.setUuid(UUID.randomUUID());
+    member.setGroup(group);
+    Dao.forType(User.class).put(member);
+    User other = new User();
+    other.setName("ResidentOther");
+    other.setUuid(UUID.randomUUID());
+    other.setGroup(otherGroup);
+    Dao.forType(User.class).put(other);
+    UserCache userCache = this.groupManagerPlugin.getUserCache();
+    userCache.retain(member.getUuid());
+    userCache.retain(other.getUuid());
+    User cachedOther = UserDao.getUser(other.getUuid());
+    Assertions.assertNotNull(UserDao.getUser(member.getUuid()), "Member is null.");
+
+    Dao.forType(Group.class).modify(group.getId(), current -> current.setPrefix("ResidentPrefix"));
+    this.server.getScheduler().waitAsyncTasksFinished();
+    Statistics statistics = this.groupManagerPlugin.getSessionFactory().getStatistics();
+    statistics.clear();
+    User cachedMember = UserDao.getUser(member.getUuid());
+    Assertions.assertEquals(
+        "ResidentPrefix", cachedMember.getGroup().getPrefix(), "Member group was not refreshed.");
+    Assertions.assertSame(cachedOther, UserDao.getUser(other.getUuid()), "Other user was evicted.");
+    Assertions.assertEquals(0, statistics.getPrepareStatementCount(), "Residents were reloaded.");
+    System.out.println("Group write resident test successful.");
+
+    userCache.release(member.getUuid());
+    userCache.release(other.getUuid());
+    Dao.forType(User.class).delete(member);
+    Dao.forType(User.class).delete(other);
+    GroupDao.deleteGroup(GroupDao.getGroup("ResidentGroup"));
+    GroupDao.deleteGroup(GroupDao.getGroup("ResidentOtherGroup"));
+  }
+
   @AfterAll
   public void callCleaningCrew() {
+    MockBukkit.unmock();
     this.hibernateConfigFile.getParentFile().getParentFile().delete();
   }
 }
@@ -0,0 +1,48 @@
+package net.playlegend.groupmanager.test;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import net.playlegend.groupmanager.GroupManagerPlugin;
+import net.playlegend.groupmanager.datastore.wrapper.GroupDao;
+import net.playlegend.groupmanager.model.Group;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class EmptySchemaTest {
+
+  private GroupManagerPlugin groupManagerPlugin;
+  private File hibernateConfigFile;
+
+  @BeforeAll
+  public void prepareTest() throws Exception {
+    // drops and recreates all tables, so the plugin has to create the default group itself
+    this.hibernateConfigFile = HibernateTestConfig.extract("create");
+    MockBukkit.mock();
+    this.groupManagerPlugin = MockBukkit.load(GroupManagerPlugin.class);
+  }
+
+  @Test
+  public void testFirstStart() {
+    Assertions.assertTrue(this.groupManagerPlugin.isEnabled(), "Plugin was not enabled.");
+    Group defaultGroup = this.groupManagerPlugin.getDefaultGroup();
+    Assertions.assertNotNull(defaultGroup, "Default group is null.");
+    Assertions.assertNotNull(defaultGroup.getId(), "Default group was not stored.");
+    Assertions.assertEquals(
+        defaultGroup, GroupDao.getGroup("default"), "Default group was not registered.");
+    Assertions.assertTrue(
+        this.groupManagerPlugin
+            .getPermissibleManager()
+            .getSnapshot()
+            .getCompiledGroups()
+            .containsKey(defaultGroup),
+        "Default group was not compiled.");
+    System.out.println("Empty schema start test successful.");
+  }
+
+  @AfterAll
+  public void callCleaningCrew() {
+    MockBukkit.unmock();
+    this.hibernateConfigFile.getParentFile().getParentFile().delete();
+  }
+}
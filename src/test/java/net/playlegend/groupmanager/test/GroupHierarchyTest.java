@@ -0,0 +1,104 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.model.Group;
+import net.playlegend.groupmanager.model.GroupWorldPermission;
+import net.playlegend.groupmanager.model.Permission;
+import net.playlegend.groupmanager.permissible.GroupHierarchy;
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class GroupHierarchyTest {
+
+  @Test
+  public void testInheritance() throws Exception {
+    Group parent = createGroup("parent", "a.b");
+    Group child = createGroup("child", "c.d");
+    Group sibling = createGroup("sibling", "e.f");
+    child.getParents().add(parent);
+    sibling.getParents().add(parent);
+    GroupWorldPermission worldPermission = new GroupWorldPermission();
+    worldPermission.setGroup(parent);
+    worldPermission.setWorld("world");
+    worldPermission.setPermission("g.h");
+    parent.getWorldPermissions().add(worldPermission);
+    GroupHierarchy hierarchy = new GroupHierarchy(List.of(parent, child, sibling));
+    Assertions.assertEquals(Set.of("a.b", "c.d"), hierarchy.getEffectivePermissionNodes(child));
+    Assertions.assertEquals(Set.of("a.b"), hierarchy.getEffectivePermissionNodes(parent));
+    Assertions.assertEquals(
+        Map.of("world", Set.of("g.h")), hierarchy.getEffectiveWorldPermissionNodes(child));
+    Assertions.assertEquals(
+        Set.of(parent.getId(), child.getId(), sibling.getId()),
+        hierarchy.getDescendantIds(Set.of(parent.getId())));
+    Assertions.assertEquals(
+        Set.of(child.getId()), hierarchy.getDescendantIds(Set.of(child.getId())));
+    Assertions.assertTrue(hierarchy.getCycles().isEmpty(), "Cycle reported without a cycle.");
+    System.out.println("Hierarchy inheritance test successful.");
+  }
+
+  @Test
+  public void testCycle() throws Exception {
+    Group a = createGroup("A", "a");
+    Group b = createGroup("B", "b");
+    Group c = createGroup("C", "c");
+    Group child = createGroup("child", "d");
+    a.getParents().add(b);
+    b.getParents().add(c);
+    c.getParents().add(a);
+    child.getParents().add(a);
+    List<Group> groups = List.of(a, b, c, child);
+    Set<String> cycleNodes = Set.of("a", "b", "c");
+    // every group of the cycle resolves to the same nodes, no matter which one is resolved first
+    for (Group first : List.of(a, b, c)) {
+      GroupHierarchy hierarchy = new GroupHierarchy(groups);
+      Assertions.assertEquals(cycleNodes, hierarchy.getEffectivePermissionNodes(first));
+      for (Group member : List.of(a, b, c)) {
+        Assertions.assertEquals(cycleNodes, hierarchy.getEffectivePermissionNodes(member));
+      }
+      Assertions.assertEquals(
+          Set.of("a", "b", "c", "d"), hierarchy.getEffectivePermissionNodes(child));
+    }
+    GroupHierarchy hierarchy = new GroupHierarchy(groups);
+    Assertions.assertEquals(1, hierarchy.getCycles().size(), "Cycle not reported once.");
+    String cycle = hierarchy.getCycles().get(0);
+    String[] path = cycle.split(" -> ");
+    Assertions.assertEquals(4, path.length, "Unexpected cycle path " + cycle + ".");
+    Assertions.assertEquals(path[0], path[3], "Cycle path does not return to its start.");
+    Assertions.assertEquals(
+        Set.of("\"A\"", "\"B\"", "\"C\""), Set.of(path[0], path[1], path[2]));
+    Assertions.assertFalse(cycle.contains("child"), "Descendant reported as part of the cycle.");
+    Assertions.assertEquals(
+        Set.of(a.getId(), b.getId(), c.getId(), child.getId()),
+        hierarchy.getDescendantIds(Set.of(b.getId())));
+    System.out.println("Hierarchy cycle test successful.");
+  }
+
+  @Test
+  public void testSelfInheritance() throws Exception {
+    Group group = createGroup("self", "a");
+    group.getParents().add(group);
+    GroupHierarchy hierarchy = new GroupHierarchy(List.of(group));
+    Assertions.assertEquals(Set.of("a"), hierarchy.getEffectivePermissionNodes(group));
+    Assertions.assertEquals(List.of("\"self\" -> \"self\""), hierarchy.getCycles());
+    System.out.println("Hierarchy self inheritance test successful.");
+  }
+
+  private static Group createGroup(String name, String... permissionNodes) throws Exception {
+    Group group = new Group();
+    // ids are generated when storing a group, so they have to be assigned by hand here
+    Field id = Group.class.getDeclaredField("id");
+    id.setAccessible(true);
+    id.set(group, UUID.randomUUID());
+    group.setName(name);
+    for (String permissionNode : permissionNodes) {
+      Permission permission = new Permission();
+      permission.setPermission(permissionNode);
+      group.getPermissions().add(permission);
+    }
+    return group;
+  }
+}
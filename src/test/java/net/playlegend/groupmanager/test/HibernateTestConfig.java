@@ -0,0 +1,45 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.util.FileUtil;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Properties;
+
+/** Writes the Hibernate configuration the database-backed tests start the plugin with. */
+public class HibernateTestConfig {
+
+  private HibernateTestConfig() {}
+
+  /**
+   * Writes the hibernate.properties file of the test database, replacing an existing one.
+   *
+   * @param schemaAction what to do with the schema when starting, e.g. "update" to keep existing
+   *     tables or "create" to start with empty ones
+   * @return the written file
+   * @throws Exception if the file could not be written
+   */
+  public static File extract(String schemaAction) throws Exception {
+    Properties hibernateConfig = new Properties();
+    hibernateConfig.put("hibernate.connection.driver_class", "com.mysql.jdbc.Driver");
+    hibernateConfig.put(
+        "hibernate.connection.url",
+        "jdbc:mysql://192.168.2.45:3306/gmanagertest?autoReconnect=true"); // CHANGE ACCORDINGLY
+    // !!!!!
+    hibernateConfig.put("hibernate.connection.username", "gmanager");
+    hibernateConfig.put("hibernate.connection.password", "gmanager");
+    hibernateConfig.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+    hibernateConfig.put("hibernate.hbm2ddl.auto", schemaAction);
+    hibernateConfig.put("hibernate.show_sql", "false");
+    hibernateConfig.put("hibernate.generate_statistics", "true");
+    new File("plugins").mkdir();
+    File hibernateConfigFile = new File(FileUtil.PLUGIN_ROOT_DIRECTORY, "hibernate.properties");
+    if (hibernateConfigFile.exists()) hibernateConfigFile.delete();
+    hibernateConfigFile.getParentFile().mkdirs();
+    hibernateConfigFile.createNewFile();
+    try (FileWriter writer = new FileWriter(hibernateConfigFile)) {
+      hibernateConfig.store(writer, "Hibernate Test Configuration");
+    }
+    return hibernateConfigFile;
+  }
+}
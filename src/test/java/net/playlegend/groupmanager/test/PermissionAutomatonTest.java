@@ -0,0 +1,77 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.permissible.PermissionAutomaton;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+public class PermissionAutomatonTest {
+
+  @Test
+  public void testNegation() {
+    PermissionAutomaton automaton = new PermissionAutomaton(List.of("a.b", "-a.c"));
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("a.b"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("a.c"));
+    Assertions.assertFalse(automaton.matches("a.c"));
+    Assertions.assertNull(automaton.getValue("a.d"), "Unmatched node has a value.");
+    Assertions.assertNull(automaton.getValue(""), "Empty node has a value.");
+    System.out.println("Automaton negation test successful.");
+  }
+
+  @Test
+  public void testDenyWinsTie() {
+    PermissionAutomaton automaton =
+        new PermissionAutomaton(List.of("a.b", "-a.b", "a.*", "-a.*", "-x.*.z", "x.*.z"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("a.b"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("a.c"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("x.y.z"));
+    System.out.println("Automaton tie test successful.");
+  }
+
+  @Test
+  public void testLiteralBeatsWildcard() {
+    PermissionAutomaton denied = new PermissionAutomaton(List.of("a.*", "-a.b"));
+    Assertions.assertEquals(Boolean.FALSE, denied.getValue("a.b"));
+    Assertions.assertEquals(Boolean.TRUE, denied.getValue("a.c"));
+    PermissionAutomaton granted = new PermissionAutomaton(List.of("-a.*", "a.b"));
+    Assertions.assertEquals(Boolean.TRUE, granted.getValue("a.b"));
+    Assertions.assertEquals(Boolean.FALSE, granted.getValue("a.c"));
+    PermissionAutomaton root = new PermissionAutomaton(List.of("*", "-a.b"));
+    Assertions.assertEquals(Boolean.FALSE, root.getValue("a.b"));
+    Assertions.assertEquals(Boolean.TRUE, root.getValue("a.c"));
+    Assertions.assertEquals(Boolean.TRUE, root.getValue("x"));
+    System.out.println("Automaton literal precedence test successful.");
+  }
+
+  @Test
+  public void testWildcardPrecedence() {
+    PermissionAutomaton automaton = new PermissionAutomaton(List.of("-a.*", "a.*.c"));
+    // a "*" in the middle beats a trailing "*", but only matches exactly one segment
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("a.b.c"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("a.b.d"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("a.b.x.c"));
+    PermissionAutomaton specific = new PermissionAutomaton(List.of("-a.*", "a.b.*"));
+    Assertions.assertEquals(Boolean.TRUE, specific.getValue("a.b.c"));
+    Assertions.assertEquals(Boolean.FALSE, specific.getValue("a.c.d"));
+    System.out.println("Automaton wildcard precedence test successful.");
+  }
+
+  @Test
+  public void testTrailingWildcard() {
+    PermissionAutomaton automaton = new PermissionAutomaton(List.of("a.*"));
+    Assertions.assertNull(automaton.getValue("a"), "Trailing wildcard matched no segment.");
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("a.b"));
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("a.b.c"));
+    Assertions.assertNull(automaton.getValue("b.a"));
+    System.out.println("Automaton trailing wildcard test successful.");
+  }
+
+  @Test
+  public void testCaseInsensitivity() {
+    PermissionAutomaton automaton = new PermissionAutomaton(List.of("A.B", "-c.*"));
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("a.b"));
+    Assertions.assertEquals(Boolean.TRUE, automaton.getValue("A.b"));
+    Assertions.assertEquals(Boolean.FALSE, automaton.getValue("C.D"));
+    System.out.println("Automaton case test successful.");
+  }
+}
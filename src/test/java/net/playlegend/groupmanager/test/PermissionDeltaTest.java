@@ -0,0 +1,79 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.model.UserPermission;
+import net.playlegend.groupmanager.permissible.PermissionDelta;
+import net.playlegend.groupmanager.permissible.RegisteredPermissionIndex;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.Map;
+
+public class PermissionDeltaTest {
+
+  private static final long NOW = 1_000_000L;
+
+  @Test
+  public void testExpiry() {
+    PermissionDelta delta =
+        createDelta(
+            override("expired.node", true, NOW - 1),
+            override("temporary.node", false, NOW + 500),
+            override("later.node", true, NOW + 1000),
+            override("permanent.node", true, -1),
+            override("expired.*", true, NOW - 1));
+    Assertions.assertNull(delta.getValue("expired.node", NOW), "Expired override applied.");
+    Assertions.assertFalse(delta.isSet("expired.node", NOW));
+    Assertions.assertEquals(Boolean.FALSE, delta.getValue("temporary.node", NOW));
+    Assertions.assertEquals(Boolean.TRUE, delta.getValue("permanent.node", Long.MAX_VALUE));
+    Assertions.assertNull(delta.getValue("expired.other", NOW), "Expired wildcard applied.");
+    Assertions.assertEquals(
+        Map.of("temporary.node", false, "later.node", true, "permanent.node", true),
+        delta.getValues(NOW));
+    Assertions.assertEquals(NOW + 500, delta.getNextExpiry(NOW));
+    // once the first override has expired, the next one determines when to recompute
+    Assertions.assertNull(delta.getValue("temporary.node", NOW + 501));
+    Assertions.assertEquals(NOW + 1000, delta.getNextExpiry(NOW + 501));
+    Assertions.assertEquals(Long.MAX_VALUE, delta.getNextExpiry(NOW + 1001));
+    System.out.println("Delta expiry test successful.");
+  }
+
+  @Test
+  public void testPrecedence() {
+    PermissionDelta delta =
+        createDelta(
+            override("*", true, -1),
+            override("a.*", false, -1),
+            override("a.b.*", true, -1),
+            override("a.b.c", false, -1));
+    Assertions.assertEquals(Boolean.FALSE, delta.getValue("a.b.c", NOW), "Exact override lost.");
+    Assertions.assertEquals(Boolean.TRUE, delta.getValue("a.b.d", NOW));
+    Assertions.assertEquals(Boolean.FALSE, delta.getValue("a.x", NOW));
+    Assertions.assertEquals(Boolean.TRUE, delta.getValue("x.y", NOW));
+    Assertions.assertEquals(Boolean.FALSE, delta.getValue("A.B.C", NOW), "Lookup not case-free.");
+    Assertions.assertTrue(delta.isSet("a.b.c", NOW));
+    Assertions.assertFalse(delta.isSet("a.b.d", NOW), "Wildcard counted as explicit override.");
+    System.out.println("Delta precedence test successful.");
+  }
+
+  @Test
+  public void testExpiredExactFallsBackToWildcard() {
+    PermissionDelta delta =
+        createDelta(override("a.*", true, -1), override("a.b", false, NOW + 100));
+    Assertions.assertEquals(Boolean.FALSE, delta.getValue("a.b", NOW));
+    Assertions.assertEquals(Boolean.TRUE, delta.getValue("a.b", NOW + 101));
+    Assertions.assertTrue(createDelta().isEmpty());
+    System.out.println("Delta fallback test successful.");
+  }
+
+  private static PermissionDelta createDelta(UserPermission... overrides) {
+    return new PermissionDelta(List.of(overrides), RegisteredPermissionIndex.EMPTY);
+  }
+
+  private static UserPermission override(String permission, boolean granted, long validUntil) {
+    UserPermission userPermission = new UserPermission();
+    userPermission.setPermission(permission);
+    userPermission.setGranted(granted);
+    userPermission.setValidUntil(validUntil);
+    return userPermission;
+  }
+}
@@ -0,0 +1,56 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.permissible.PermissionNodeInterner;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+public class PermissionNodeInternerTest {
+
+  @Test
+  public void testCapacity() {
+    PermissionNodeInterner interner = new PermissionNodeInterner(2);
+    int first = interner.getId("a.b");
+    int second = interner.getId("c.d");
+    Assertions.assertNotEquals(-1, first);
+    Assertions.assertNotEquals(-1, second);
+    Assertions.assertNotEquals(first, second, "Two nodes share an id.");
+    Assertions.assertEquals(first, interner.getId("a.b"), "Id of a node changed.");
+    Assertions.assertEquals("a.b", interner.getNode(first));
+    Assertions.assertTrue(interner.isFull(), "Interner is not full.");
+    Assertions.assertEquals(-1, interner.getId("e.f"), "Node interned beyond the capacity.");
+    Assertions.assertEquals(second, interner.getId("c.d"), "Known node lost once full.");
+    Assertions.assertEquals(2, interner.size());
+    System.out.println("Interner capacity test successful.");
+  }
+
+  @Test
+  public void testMostFrequentNodes() {
+    PermissionNodeInterner interner = new PermissionNodeInterner(8);
+    int rare = interner.getId("rare");
+    int frequent = interner.getId("frequent");
+    interner.getId("unchecked");
+    interner.recordAccess(rare);
+    for (int i = 0; i < 3; i++) {
+      interner.recordAccess(frequent);
+    }
+    Assertions.assertEquals(List.of("frequent", "rare"), interner.getMostFrequentNodes(8));
+    Assertions.assertEquals(List.of("frequent"), interner.getMostFrequentNodes(1));
+    Assertions.assertEquals(List.of(), interner.getMostFrequentNodes(0));
+    System.out.println("Interner frequency test successful.");
+  }
+
+  @Test
+  public void testAging() {
+    PermissionNodeInterner interner = new PermissionNodeInterner(1);
+    int id = interner.getId("a.b");
+    // frequencies are halved once more than ten times the capacity accesses have been recorded
+    for (int i = 0; i < 10; i++) {
+      interner.recordAccess(id);
+    }
+    Assertions.assertEquals(10, interner.getFrequency(id));
+    interner.recordAccess(id);
+    Assertions.assertEquals(5, interner.getFrequency(id), "Frequencies were not aged.");
+    System.out.println("Interner aging test successful.");
+  }
+}
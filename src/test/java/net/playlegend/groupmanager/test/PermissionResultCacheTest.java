@@ -0,0 +1,72 @@
+package net.playlegend.groupmanager.test;
+
+import net.playlegend.groupmanager.permissible.PermissionNodeInterner;
+import net.playlegend.groupmanager.permissible.PermissionResultCache;
+import org.junit.jupiter.api.*;
+
+public class PermissionResultCacheTest {
+
+  @Test
+  public void testCaching() {
+    PermissionResultCache cache = new PermissionResultCache(new PermissionNodeInterner(8), 8);
+    int granted = cache.lookup("a.b");
+    int denied = cache.lookup("c.d");
+    Assertions.assertFalse(cache.contains(granted), "Result cached before it was put.");
+    cache.put(granted, true);
+    cache.put(denied, false);
+    Assertions.assertTrue(cache.contains(granted));
+    Assertions.assertTrue(cache.get(granted));
+    Assertions.assertTrue(cache.contains(denied));
+    Assertions.assertFalse(cache.get(denied));
+    Assertions.assertEquals(2, cache.size());
+    Assertions.assertEquals(2, cache.getHits());
+    Assertions.assertEquals(1, cache.getMisses());
+    System.out.println("Result cache test successful.");
+  }
+
+  @Test
+  public void testInternerCapacity() {
+    PermissionResultCache cache = new PermissionResultCache(new PermissionNodeInterner(1), 8);
+    cache.put(cache.lookup("a.b"), true);
+    int nodeId = cache.lookup("c.d");
+    Assertions.assertEquals(-1, nodeId, "Node interned beyond the capacity.");
+    cache.put(nodeId, true);
+    Assertions.assertFalse(cache.contains(nodeId), "Uninterned node cached.");
+    Assertions.assertEquals(1, cache.size());
+    System.out.println("Result cache interner capacity test successful.");
+  }
+
+  @Test
+  public void testEviction() {
+    PermissionNodeInterner interner = new PermissionNodeInterner(8);
+    PermissionResultCache cache = new PermissionResultCache(interner, 2);
+    int first = lookup(cache, "first", 5);
+    int second = lookup(cache, "second", 5);
+    cache.put(first, true);
+    cache.put(second, true);
+    // a node checked less frequently than all cached nodes does not displace any of them
+    int rare = lookup(cache, "rare", 1);
+    cache.put(rare, true);
+    Assertions.assertFalse(cache.contains(rare), "Rare node was admitted.");
+    Assertions.assertTrue(cache.contains(first) && cache.contains(second), "Node was evicted.");
+    Assertions.assertEquals(0, cache.getEvictions());
+    // a node checked more frequently displaces one of them
+    int frequent = lookup(cache, "frequent", 10);
+    cache.put(frequent, false);
+    Assertions.assertTrue(cache.contains(frequent), "Frequent node was not admitted.");
+    Assertions.assertFalse(cache.get(frequent));
+    Assertions.assertEquals(2, cache.size(), "Cache grew beyond its maximum size.");
+    Assertions.assertEquals(1, cache.getEvictions());
+    Assertions.assertTrue(
+        cache.contains(first) ^ cache.contains(second), "Not exactly one node was evicted.");
+    System.out.println("Result cache eviction test successful.");
+  }
+
+  private static int lookup(PermissionResultCache cache, String permission, int times) {
+    int nodeId = -1;
+    for (int i = 0; i < times; i++) {
+      nodeId = cache.lookup(permission);
+    }
+    return nodeId;
+  }
+}